@@ -3,24 +3,31 @@
  * 1. createAnswer() method serves /question/{questionId}/answer/create request
  * 2. editAnswerContent() method serves /answer/edit/{answerId} request
  * 3. deleteAnswer() method serves /answer/delete/{answerId} request
- * 4. getAllAnswersToQuestion() method serves answer/all/{questionId} request
+ * 4. getAllAnswersToQuestion() method serves answer/all/{questionId} request, one page at a time, and answers
+ *    304 Not Modified when the If-None-Match request header holds the ETag of the current page
  */
 
 package com.upgrad.quora.api.controller;
 
 import com.upgrad.quora.api.model.*;
 import com.upgrad.quora.service.business.AnswerBusinessService;
+import com.upgrad.quora.service.common.EntityTag;
+import com.upgrad.quora.service.common.QuestionAnswersPage;
 import com.upgrad.quora.service.entity.AnswerEntity;
 import com.upgrad.quora.service.exception.AnswerNotFoundException;
 import com.upgrad.quora.service.exception.AuthorizationFailedException;
 import com.upgrad.quora.service.exception.InvalidQuestionException;
+import com.upgrad.quora.service.exception.InvalidRequestException;
+import com.upgrad.quora.service.exception.PreconditionFailedException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
@@ -39,6 +46,7 @@ public class AnswerController {
      * and a questionId string for which answer has to be created
      * This will call the createAnswer method in AnswerBusinessService which would facilitate the creation
      * of the given answer provided the user if it has provided valid authorization.
+     * The ETag response header holds the version of the new answer, to be passed in the If-Match header of an edit.
      */
     @RequestMapping(method = RequestMethod.POST, path = "/question/{questionId}/answer/create",
             consumes = MediaType.APPLICATION_JSON_UTF8_VALUE,
@@ -59,35 +67,42 @@ public class AnswerController {
         /* Once the answer is persisted, prepare the response with UUID and a status message */
         AnswerResponse response = new AnswerResponse().id(createdAnswerEntity.getUuid()).status("ANSWER CREATED");
 
-        /* return the response object back to the client*/
-        return new ResponseEntity<AnswerResponse>(response, HttpStatus.CREATED);
+        /* return the response object along with the version of the answer back to the client*/
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag(EntityTag.of(createdAnswerEntity.getVersion()));
+        return new ResponseEntity<AnswerResponse>(response, headers, HttpStatus.CREATED);
     }
 
     /* editAnswerContent() method represents an endpoint which would serve /answer/edit/{answerId} request,
-     * This method would take three inputs : the authorization string from the Request Header
+     * This method would take four inputs : the authorization string from the Request Header
      * a AnswerEditRequest object which holds the details of a given updated answer
      * and a answerId string for which answer has to be updated
+     * and the optional If-Match request header holding the ETag of the version of the answer the client has read
      * This will call the editAnswerContent method in AnswerBusinessService which would facilitate the update
      * of the given answer provided the user if it has provided valid authorization.
+     * The ETag response header holds the new version of the answer.
      */
     @RequestMapping(method = RequestMethod.PUT, path = "/answer/edit/{answerId}",
             consumes = MediaType.APPLICATION_JSON_UTF8_VALUE, produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
     public ResponseEntity<AnswerEditResponse> editAnswerContent(@RequestHeader("authorization") final String authorization,
                                                                 @PathVariable("answerId") final String answerId,
-                                                                final AnswerEditRequest answerEditRequest)
-            throws AuthorizationFailedException, AnswerNotFoundException {
+                                                                final AnswerEditRequest answerEditRequest,
+                                                                @RequestHeader(value = "If-Match", required = false) final String ifMatch)
+            throws AuthorizationFailedException, AnswerNotFoundException, PreconditionFailedException {
 
         /* Call the editAnswerContent from service to update the answer with given content */
         String answerContent = answerEditRequest.getContent();
         AnswerEntity updatedAnswer = answerBusinessService.editAnswerContent(answerId,
-                answerContent, authorization);
+                answerContent, authorization, ifMatch);
 
         /* Once the answer is updated, prepare the response with UUID and a status message */
         AnswerEditResponse answerEditResponse = new AnswerEditResponse();
         answerEditResponse.id(updatedAnswer.getUuid()).status("ANSWER EDITED");
 
-        /* return the response object back to the client*/
-        return new ResponseEntity<AnswerEditResponse>(answerEditResponse, HttpStatus.OK);
+        /* return the response object along with the new version of the answer back to the client*/
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag(EntityTag.of(updatedAnswer.getVersion()));
+        return new ResponseEntity<AnswerEditResponse>(answerEditResponse, headers, HttpStatus.OK);
     }
 
     /* deleteAnswer() method represents an endpoint which would serve /answer/delete/{answerId} request,
@@ -114,28 +129,52 @@ public class AnswerController {
     }
 
     /* getAllAnswersToQuestion() method represents an endpoint which would serve answer/all/{questionId} request,
-     * This method would take two inputs : the authorization string from the Request Header
-     * and a questionId string for which all the answers have to be fetched
+     * This method would take the authorization string from the Request Header, a questionId string for which
+     * the answers have to be fetched and three optional query parameters: sort - newest (default) or oldest,
+     * limit - the page size and after - the cursor returned for the previous page.
      * This will call the getAllAnswersToQuestion method in AnswerBusinessService which would fetch
-     * all the given answers provided the any user if it has provided valid authorization.
+     * the question and one page of its answers provided the any user if it has provided valid authorization.
+     * The cursor of the next page is returned in the next-cursor response header, which is absent on the last page.
+     * The ETag response header is derived from the versions of the question and of the answers of the page. When the
+     * If-None-Match request header holds the same ETag, 304 Not Modified is returned without building the body.
      */
     @RequestMapping(method = RequestMethod.GET, path = "answer/all/{questionId}",
             produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
     public ResponseEntity<List<AnswerDetailsResponse>> getAllAnswersToQuestion(@RequestHeader("authorization") final String authorization,
-                                                                               @PathVariable("questionId") final String questionId)
-            throws AuthorizationFailedException, InvalidQuestionException {
-        /* Get the list of all the answer to given question from database if the authorization done successfully. */
-        List<AnswerEntity> answerEntities = answerBusinessService.getAllAnswersToQuestion(authorization, questionId);
-
-        /* Prepare the response with the required details from database and create a response list */
-        List<AnswerDetailsResponse> answerResponseList = new LinkedList<AnswerDetailsResponse>();
+                                                                               @PathVariable("questionId") final String questionId,
+                                                                               @RequestParam(value = "sort", required = false) final String sort,
+                                                                               @RequestParam(value = "limit", required = false) final Integer limit,
+                                                                               @RequestParam(value = "after", required = false) final String after,
+                                                                               final WebRequest webRequest)
+            throws AuthorizationFailedException, InvalidQuestionException, InvalidRequestException {
+        /* Get the question and one page of its answers from database if the authorization done successfully. */
+        QuestionAnswersPage answersPage = answerBusinessService.getAllAnswersToQuestion(authorization, questionId, sort, after, limit);
+
+        /* Pass the cursor of the next page, if any, in the response header */
+        HttpHeaders headers = new HttpHeaders();
+        if (answersPage.getAnswers().getNextCursor() != null) {
+            headers.add("next-cursor", answersPage.getAnswers().getNextCursor());
+        }
+        /* Return only the status 304 if the client holds the current version of the page */
+        if (webRequest.checkNotModified(answersPage.getEtag())) {
+            return new ResponseEntity<List<AnswerDetailsResponse>>(headers, HttpStatus.NOT_MODIFIED);
+        }
+        headers.setETag(answersPage.getEtag());
+
+        /* Prepare the response with the required details from database and create a response list.
+         * The question content has been fetched once and is shared by every answer of the page.
+         */
+        final String questionContent = answersPage.getQuestionContent();
+        List<AnswerEntity> answerEntities = answersPage.getAnswers().getItems();
+        List<AnswerDetailsResponse> answerResponseList = new ArrayList<AnswerDetailsResponse>(answerEntities.size());
         for (AnswerEntity answer : answerEntities) {
             AnswerDetailsResponse answerDetailsResponse = new AnswerDetailsResponse();
             answerDetailsResponse.id(answer.getUuid()).answerContent(answer.getAnswer())
-                    .questionContent(answer.getQuestion().getContent());
+                    .questionContent(questionContent);
             answerResponseList.add(answerDetailsResponse);
         }
-        /* Return the details of questions in the form of responseList and a Httpstatus.OK to client */
-        return new ResponseEntity<List<AnswerDetailsResponse>>(answerResponseList, HttpStatus.OK);
+
+        /* Return the details of answers in the form of responseList and a Httpstatus.OK to client */
+        return new ResponseEntity<List<AnswerDetailsResponse>>(answerResponseList, headers, HttpStatus.OK);
     }
 }
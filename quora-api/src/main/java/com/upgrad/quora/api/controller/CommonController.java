@@ -5,16 +5,20 @@
  * It would call getUser method in the UserBusinessService class passing the above two parameters.
  * It would further return the user details wrapped in the UserEntity class which will be further
  * added to the required response class along with the mentioned Http status to the swagger UI.
+ * The ETag response header holds the version of the user, a request whose If-None-Match header holds the
+ * same ETag gets 304 Not Modified without a body.
  */
 
 package com.upgrad.quora.api.controller;
 
 import com.upgrad.quora.api.model.UserDetailsResponse;
 import com.upgrad.quora.service.business.UserBusinessService;
+import com.upgrad.quora.service.common.EntityTag;
 import com.upgrad.quora.service.entity.UserEntity;
 import com.upgrad.quora.service.exception.AuthorizationFailedException;
 import com.upgrad.quora.service.exception.UserNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -23,6 +27,7 @@ import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 /* This annotation would designate the class CommonController as a Rest Controller */
 @RestController
@@ -39,12 +44,19 @@ public class CommonController {
      */
     @RequestMapping(method = RequestMethod.GET, path = "/userprofile/{userId}",
             produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
-    public ResponseEntity<UserDetailsResponse> userProfile(@RequestHeader("authorization") final String authorization, @PathVariable("userId") final String userId)
+    public ResponseEntity<UserDetailsResponse> userProfile(@RequestHeader("authorization") final String authorization, @PathVariable("userId") final String userId,
+                                                           final WebRequest webRequest)
             throws AuthorizationFailedException, UserNotFoundException {
 
         /* Call the getUserDetails method to get the details of the given user */
         UserEntity userDetails = userBusinessService.getUserDetails(userId, authorization);
 
+        /* Return only the status 304 if the client holds the current version of the user */
+        final String etag = EntityTag.of(userDetails.getVersion());
+        if (webRequest.checkNotModified(etag)) {
+            return new ResponseEntity<UserDetailsResponse>(HttpStatus.NOT_MODIFIED);
+        }
+
         /* Build the userDetailsResponse object with the required attributes of the UserEntity object */
         UserDetailsResponse userDetailsResponse = new UserDetailsResponse();
         userDetailsResponse.firstName(userDetails.getFirstName());
@@ -56,7 +68,9 @@ public class CommonController {
         userDetailsResponse.dob(userDetails.getDob());
         userDetailsResponse.contactNumber(userDetails.getContactNumber());
 
-        /* Adding the userDetailsResponse and the relevant HttpStatus status to ResponseEntity */
-        return new ResponseEntity<UserDetailsResponse>(userDetailsResponse, HttpStatus.OK);
+        /* Adding the userDetailsResponse, its ETag and the relevant HttpStatus status to ResponseEntity */
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag(etag);
+        return new ResponseEntity<UserDetailsResponse>(userDetailsResponse, headers, HttpStatus.OK);
     }
 }
@@ -1,28 +1,47 @@
 /* Created by Sangeeta as part of developing Controllers for implementing the given functionality
  * This controller has different endpoints. Below is list of endpoints and their respective paths:
  * 1. createQuestion() method serves /question/create request
- * 2. getAllQuestions() method serves /question/all request
+ *    createQuestions() method serves /question/create/batch request
+ * 2. getAllQuestions() method serves /question/all request, one page at a time
+ *    The listings of 2. and 5. are served as pre-serialized JSON from the QuestionPageCache and answer
+ *    304 Not Modified when the If-None-Match request header holds the ETag of the current content.
  * 3. editQuestionContent() method serves /question/edit/{questionId} request
  * 4. deleteQuestion() method serves /question/delete/{questionId} request
  * 5. getAllQuestionsByUser() method serves question/all/{userId} request
+ * 6. searchQuestions() method serves /question/search request, one page at a time
+ * 7. getHotQuestions() method serves /question/hot request
  */
 
 package com.upgrad.quora.api.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.upgrad.quora.api.model.*;
 import com.upgrad.quora.service.business.QuestionService;
+import com.upgrad.quora.service.cache.CachedPage;
+import com.upgrad.quora.service.common.EntityTag;
+import com.upgrad.quora.service.common.GenericErrorCode;
+import com.upgrad.quora.service.common.KeysetPage;
+import com.upgrad.quora.service.common.UnexpectedException;
 import com.upgrad.quora.service.entity.QuestionEntity;
 import com.upgrad.quora.service.exception.AuthorizationFailedException;
 import com.upgrad.quora.service.exception.InvalidQuestionException;
+import com.upgrad.quora.service.exception.InvalidRequestException;
+import com.upgrad.quora.service.exception.PreconditionFailedException;
 import com.upgrad.quora.service.exception.UserNotFoundException;
+import com.upgrad.quora.service.ranking.HotQuestion;
+import com.upgrad.quora.service.search.SearchHit;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.time.OffsetDateTime;
+import java.time.ZonedDateTime;
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.UUID;
 
@@ -35,11 +54,16 @@ public class QuestionController {
     @Autowired
     private QuestionService questionService;
 
+    /* The JSON mapper of the message converters, so cached pages are serialized exactly like any other response */
+    @Autowired
+    private ObjectMapper objectMapper;
+
     /* createQuestion() method represents an endpoint which would serve /question/create request
      * This method would take two inputs : the authorization string from the Request Header
      * and a QuestionRequest object which holds the details of a given question
      * This will call the createQuestion method in QuestionService which would facilitate the creation
      * of the given question provided the user has provided valid authorization.
+     * The ETag response header holds the version of the new question, to be passed in the If-Match header of an edit.
      */
     @RequestMapping(method = RequestMethod.POST, path = "/question/create",
             consumes = MediaType.APPLICATION_JSON_UTF8_VALUE,
@@ -57,49 +81,100 @@ public class QuestionController {
         /* Once the question is persisted, prepare the response with UUID and a status message */
         QuestionResponse questionResponse = new QuestionResponse();
         questionResponse.id(createdQuestion.getUuid()).status("QUESTION CREATED");
-        /* return the response object back to the client*/
-        return new ResponseEntity<QuestionResponse>(questionResponse, HttpStatus.CREATED);
+        /* return the response object along with the version of the question back to the client*/
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag(EntityTag.of(createdQuestion.getVersion()));
+        return new ResponseEntity<QuestionResponse>(questionResponse, headers, HttpStatus.CREATED);
     }
 
+    /* createQuestions() method represents an endpoint which would serve /question/create/batch request
+     * This method would take two inputs : the authorization string from the Request Header
+     * and a QuestionBatchRequest object in the Request Body which holds the contents of the questions
+     * This will call the createQuestions method in QuestionService which would create all the given
+     * questions in a single transaction provided the user has provided valid authorization.
+     */
+    @RequestMapping(method = RequestMethod.POST, path = "/question/create/batch",
+            consumes = MediaType.APPLICATION_JSON_UTF8_VALUE,
+            produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    public ResponseEntity<QuestionBatchResponse> createQuestions(@RequestHeader("authorization") final String authorization,
+                                                                 @RequestBody final QuestionBatchRequest questionBatchRequest)
+            throws AuthorizationFailedException, InvalidRequestException {
+        /* Prepare a questionEntity object for every content fed by the user */
+        List<QuestionEntity> questionEntities = new ArrayList<>();
+        if (questionBatchRequest.getContents() != null) {
+            for (String content : questionBatchRequest.getContents()) {
+                QuestionEntity questionEntity = new QuestionEntity();
+                questionEntity.setUuid(UUID.randomUUID().toString());
+                questionEntity.setContent(content);
+                questionEntities.add(questionEntity);
+            }
+        }
+
+        /* Call the createQuestions in service to persist the new question records in database */
+        List<QuestionEntity> createdQuestions = questionService.createQuestions(questionEntities, authorization);
+
+        /* Once the questions are persisted, prepare the response with the UUIDs and a status message */
+        QuestionBatchResponse questionBatchResponse = new QuestionBatchResponse().status("QUESTIONS CREATED");
+        for (QuestionEntity createdQuestion : createdQuestions) {
+            questionBatchResponse.addIdsItem(createdQuestion.getUuid());
+        }
+        return new ResponseEntity<QuestionBatchResponse>(questionBatchResponse, HttpStatus.CREATED);
+    }
+
+    /* getAllQuestions() represents an endpoint to serve /question/all request
+     * This method would take the authorization string from the Request Header and two optional
+     * query parameters: limit - the page size and after - the cursor returned for the previous page.
+     * Questions are returned newest first, one page at a time. The cursor of the next page is
+     * returned in the next-cursor response header, which is absent on the last page.
+     * The page is written as it was serialized into the QuestionPageCache along with its ETag. When the
+     * If-None-Match request header holds that ETag, 304 Not Modified is returned without a body.
+     */
     @RequestMapping(method = RequestMethod.GET, path = "/question/all",
             produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
-    public ResponseEntity<List<QuestionDetailsResponse>> getAllQuestions(@RequestHeader("authorization") final String authorization) throws AuthorizationFailedException {
-        /* Get the list of all the questions from database if the authorization holds good. */
-        List<QuestionEntity> questionEntities = questionService.getAllQuestions(authorization);
+    public ResponseEntity<byte[]> getAllQuestions(@RequestHeader("authorization") final String authorization,
+                                                  @RequestParam(value = "limit", required = false) final Integer limit,
+                                                  @RequestParam(value = "after", required = false) final String after,
+                                                  final WebRequest webRequest)
+            throws AuthorizationFailedException, InvalidRequestException {
+        /* Get one page of the questions, serialized, if the authorization holds good. */
+        CachedPage questionPage = questionService.getAllQuestions(authorization, after, limit, this::serializeQuestions);
 
-        /* Prepare the response with the required details from database and create a response list */
-        List<QuestionDetailsResponse> questionResponseList = new LinkedList<QuestionDetailsResponse>();
-        for (QuestionEntity question : questionEntities) {
-            QuestionDetailsResponse questionDetailsResponse = new QuestionDetailsResponse();
-            questionDetailsResponse.id(question.getUuid()).content(question.getContent());
-            questionResponseList.add(questionDetailsResponse);
+        /* Pass the cursor of the next page, if any, in the response header */
+        HttpHeaders headers = new HttpHeaders();
+        if (questionPage.getNextCursor() != null) {
+            headers.add("next-cursor", questionPage.getNextCursor());
         }
-        /* Return the details of questions in the form of responseList and a Httpstatus.OK to client */
-        return new ResponseEntity<List<QuestionDetailsResponse>>(questionResponseList, HttpStatus.OK);
+        /* Return the serialized questions and a Httpstatus.OK to client, or only the status 304 if unchanged */
+        return cachedPageResponse(questionPage, headers, webRequest);
     }
 
     /* editQuestionContent() represents an endpoint to serve /question/edit/{questionId} request
-     * This method would take three inpits: the authorization string from the Request Header,
+     * This method would take four inpits: the authorization string from the Request Header,
      * the questionId of the question to be edited
-     * and the questionRequest holding the updated details of the question
+     * the questionRequest holding the updated details of the question
+     * and the optional If-Match request header holding the ETag of the version of the question the client has read
      * If the authorization and the UUID of the question is valid, then the method would update the
      * details of the given question and persist it to the database.
+     * The ETag response header holds the new version of the question.
      */
     @RequestMapping(method = RequestMethod.PUT, path = "/question/edit/{questionId}",
             consumes = MediaType.APPLICATION_JSON_UTF8_VALUE, produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
     public ResponseEntity<QuestionEditResponse> editQuestionContent(@RequestHeader("authorization") final String authorization, @PathVariable("questionId") final String questionId,
-                                                                    final QuestionEditRequest questionEditRequest)
-            throws AuthorizationFailedException, InvalidQuestionException {
+                                                                    final QuestionEditRequest questionEditRequest,
+                                                                    @RequestHeader(value = "If-Match", required = false) final String ifMatch)
+            throws AuthorizationFailedException, InvalidQuestionException, PreconditionFailedException {
         /* Call the editQuestionContent from service to update the question with given content */
         String questionContent = questionEditRequest.getContent();
         QuestionEntity updatedQuestion = questionService.editQuestionContent(questionId,
-                questionContent, authorization);
+                questionContent, authorization, ifMatch);
 
         /* Once the question is updated, prepare the response with UUID and a status message */
         QuestionEditResponse questionEditResponse = new QuestionEditResponse();
         questionEditResponse.id(updatedQuestion.getUuid()).status("QUESTION EDITED");
-        /* return the response object back to the client*/
-        return new ResponseEntity<QuestionEditResponse>(questionEditResponse, HttpStatus.OK);
+        /* return the response object along with the new version of the question back to the client*/
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag(EntityTag.of(updatedQuestion.getVersion()));
+        return new ResponseEntity<QuestionEditResponse>(questionEditResponse, headers, HttpStatus.OK);
     }
 
     /*This method is an endpoint which accepts the delete request /question/delete/{questionId} with parameter questionId
@@ -117,20 +192,99 @@ public class QuestionController {
     /*This endpoint accepts the get request question/all/{userId} with parameter userId
      *This endpoint internally calls the Business layer to verify the user token
      *If the token and user is valid all the questions posted by the user are returned.
+     *Like /question/all, the list is served pre-serialized with an ETag and honours If-None-Match.
      */
     @RequestMapping(method = RequestMethod.GET, path = "question/all/{userId}", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
-    public ResponseEntity<List<QuestionDetailsResponse>> getAllQuestionsByUser(@PathVariable("userId") String userId, @RequestHeader("authorization") String accessToken) throws AuthorizationFailedException, UserNotFoundException {
-        List<QuestionEntity> listOfQuestions = questionService.getAllQuestionsByUser(userId, accessToken);
-        List<QuestionDetailsResponse> questionDetailsResponses = new ArrayList<QuestionDetailsResponse>();
-        for (QuestionEntity question : listOfQuestions) {
+    public ResponseEntity<byte[]> getAllQuestionsByUser(@PathVariable("userId") String userId, @RequestHeader("authorization") String accessToken,
+                                                        WebRequest webRequest) throws AuthorizationFailedException, UserNotFoundException {
+        CachedPage questions = questionService.getAllQuestionsByUser(userId, accessToken, this::serializeQuestions);
+        return cachedPageResponse(questions, new HttpHeaders(), webRequest);
+
+    }
+
+    /* searchQuestions() represents an endpoint to serve /question/search request
+     * This method would take the authorization string from the Request Header, the search text in the q
+     * query parameter and two optional query parameters: limit - the page size and after - the cursor
+     * returned for the previous page.
+     * Questions whose content or answers match the search text are returned best match first, one page at a time.
+     * The cursor of the next page is returned in the next-cursor response header, which is absent on the last page.
+     */
+    @RequestMapping(method = RequestMethod.GET, path = "/question/search",
+            produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    public ResponseEntity<List<QuestionDetailsResponse>> searchQuestions(@RequestHeader("authorization") final String authorization,
+                                                                         @RequestParam(value = "q") final String query,
+                                                                         @RequestParam(value = "limit", required = false) final Integer limit,
+                                                                         @RequestParam(value = "after", required = false) final String after)
+            throws AuthorizationFailedException, InvalidRequestException {
+        /* Get one page of the matching questions if the authorization holds good. */
+        KeysetPage<SearchHit> searchPage = questionService.searchQuestions(authorization, query, after, limit);
+
+        /* Prepare the response with the details of the matching questions, in order of relevance */
+        List<QuestionDetailsResponse> questionResponseList = new ArrayList<QuestionDetailsResponse>(searchPage.getItems().size());
+        for (SearchHit hit : searchPage.getItems()) {
             QuestionDetailsResponse questionDetailsResponse = new QuestionDetailsResponse();
-            questionDetailsResponse.id(question.getUuid()).content(question.getContent());
-            questionDetailsResponses.add(questionDetailsResponse);
+            questionDetailsResponse.id(hit.getQuestionUuid()).content(hit.getContent());
+            questionResponseList.add(questionDetailsResponse);
         }
 
-        return new ResponseEntity<List<QuestionDetailsResponse>>(questionDetailsResponses, HttpStatus.OK);
+        /* Pass the cursor of the next page, if any, in the response header */
+        HttpHeaders headers = new HttpHeaders();
+        if (searchPage.getNextCursor() != null) {
+            headers.add("next-cursor", searchPage.getNextCursor());
+        }
+        return new ResponseEntity<List<QuestionDetailsResponse>>(questionResponseList, headers, HttpStatus.OK);
+    }
+
+    /* getHotQuestions() represents an endpoint to serve /question/hot request
+     * This method would take the authorization string from the Request Header and the optional
+     * query parameter limit - the number of questions.
+     * Questions are returned hottest first, the more answers a question got recently, the hotter it is.
+     */
+    @RequestMapping(method = RequestMethod.GET, path = "/question/hot",
+            produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    public ResponseEntity<List<QuestionDetailsResponse>> getHotQuestions(@RequestHeader("authorization") final String authorization,
+                                                                         @RequestParam(value = "limit", required = false) final Integer limit)
+            throws AuthorizationFailedException, InvalidRequestException {
+        List<HotQuestion> hotQuestions = questionService.getHotQuestions(authorization, limit);
+
+        /* Prepare the response with the details of the hot questions, hottest first */
+        List<QuestionDetailsResponse> questionResponseList = new ArrayList<QuestionDetailsResponse>(hotQuestions.size());
+        for (HotQuestion hotQuestion : hotQuestions) {
+            QuestionDetailsResponse questionDetailsResponse = new QuestionDetailsResponse();
+            questionDetailsResponse.id(hotQuestion.getQuestionUuid()).content(hotQuestion.getContent());
+            questionResponseList.add(questionDetailsResponse);
+        }
+        return new ResponseEntity<List<QuestionDetailsResponse>>(questionResponseList, HttpStatus.OK);
+    }
 
+    /* Serialize the questions of a listing into the JSON array of QuestionDetailsResponse returned to the client */
+    private byte[] serializeQuestions(final List<QuestionEntity> questions) {
+        List<QuestionDetailsResponse> questionResponseList = new ArrayList<QuestionDetailsResponse>(questions.size());
+        for (QuestionEntity question : questions) {
+            QuestionDetailsResponse questionDetailsResponse = new QuestionDetailsResponse();
+            questionDetailsResponse.id(question.getUuid()).content(question.getContent())
+                    .answerCount(question.getAnswerCount()).lastAnswerAt(toOffsetDateTime(question.getLastAnswerAt()));
+            questionResponseList.add(questionDetailsResponse);
+        }
+        try {
+            return objectMapper.writeValueAsBytes(questionResponseList);
+        } catch (JsonProcessingException e) {
+            throw new UnexpectedException(GenericErrorCode.GEN_001, e);
+        }
     }
 
+    /* Write the serialized page with its ETag, or only 304 Not Modified when the client holds the same ETag */
+    private static ResponseEntity<byte[]> cachedPageResponse(final CachedPage page, final HttpHeaders headers,
+                                                             final WebRequest webRequest) {
+        if (webRequest.checkNotModified(page.getEtag())) {
+            return new ResponseEntity<byte[]>(headers, HttpStatus.NOT_MODIFIED);
+        }
+        headers.setETag(page.getEtag());
+        headers.setContentType(MediaType.APPLICATION_JSON_UTF8);
+        return new ResponseEntity<byte[]>(page.getBody(), headers, HttpStatus.OK);
+    }
 
+    private static OffsetDateTime toOffsetDateTime(final ZonedDateTime dateTime) {
+        return dateTime == null ? null : dateTime.toOffsetDateTime();
+    }
 }
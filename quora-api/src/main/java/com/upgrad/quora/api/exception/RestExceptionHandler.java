@@ -8,6 +8,11 @@ package com.upgrad.quora.api.exception;
 
 import com.upgrad.quora.api.model.ErrorResponse;
 import com.upgrad.quora.service.exception.*;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -17,10 +22,21 @@ import org.springframework.web.context.request.WebRequest;
 @ControllerAdvice
 public class RestExceptionHandler {
 
+    /* Counter of the errors returned to the clients, tagged with the error code and the http status */
+    public static final String ERROR_COUNTER_NAME = "quora.errors";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /* Seconds a client is asked to wait before retrying a request rejected with 503 */
+    @Value("${quora.password-hashing.retry-after-seconds:1}")
+    private long retryAfterSeconds;
+
     /* Handle the exception in case of : Repeated username/email used for signUp */
     @ExceptionHandler(SignUpRestrictedException.class)
     public ResponseEntity<ErrorResponse> signUpRestrictedException(SignUpRestrictedException exc,
                                                                    WebRequest request) {
+        countError(exc.getCode(), HttpStatus.CONFLICT);
         return new ResponseEntity<ErrorResponse>(
                 new ErrorResponse().code(exc.getCode()).message(exc.getErrorMessage()), HttpStatus.CONFLICT
         );
@@ -30,6 +46,7 @@ public class RestExceptionHandler {
     @ExceptionHandler(AuthenticationFailedException.class)
     public ResponseEntity<ErrorResponse> authenticationFailedException(AuthenticationFailedException
                                                                                exc, WebRequest request) {
+        countError(exc.getCode(), HttpStatus.UNAUTHORIZED);
         return new ResponseEntity<ErrorResponse>(
                 new ErrorResponse().code(exc.getCode()).message(exc.getErrorMessage()),
                 HttpStatus.UNAUTHORIZED
@@ -40,6 +57,7 @@ public class RestExceptionHandler {
     @ExceptionHandler(SignOutRestrictedException.class)
     public ResponseEntity<ErrorResponse> signOutRestrictedException(SignOutRestrictedException exc,
                                                                     WebRequest request) {
+        countError(exc.getCode(), HttpStatus.UNAUTHORIZED);
         return new ResponseEntity<ErrorResponse>(
                 new ErrorResponse().code(exc.getCode()).message(exc.getErrorMessage()),
                 HttpStatus.UNAUTHORIZED
@@ -55,6 +73,7 @@ public class RestExceptionHandler {
     @ExceptionHandler(AuthorizationFailedException.class)
     public ResponseEntity<ErrorResponse> authorizationFailedException(AuthorizationFailedException
                                                                               exc, WebRequest request) {
+        countError(exc.getCode(), HttpStatus.FORBIDDEN);
         return new ResponseEntity<ErrorResponse>(
                 new ErrorResponse().code(exc.getCode()).message(exc.getErrorMessage()), HttpStatus.FORBIDDEN
         );
@@ -64,6 +83,7 @@ public class RestExceptionHandler {
     @ExceptionHandler(UserNotFoundException.class)
     public ResponseEntity<ErrorResponse> userNotFoundException(UserNotFoundException exc,
                                                                WebRequest request) {
+        countError(exc.getCode(), HttpStatus.NOT_FOUND);
         return new ResponseEntity<ErrorResponse>(
                 new ErrorResponse().code(exc.getCode()).message(exc.getErrorMessage()), HttpStatus.NOT_FOUND
         );
@@ -73,6 +93,7 @@ public class RestExceptionHandler {
     @ExceptionHandler(InvalidQuestionException.class)
     public ResponseEntity<ErrorResponse> invalidQuestionException(InvalidQuestionException exc,
                                                                   WebRequest request) {
+        countError(exc.getCode(), HttpStatus.NOT_FOUND);
         return new ResponseEntity<ErrorResponse>(
                 new ErrorResponse().code(exc.getCode()).message(exc.getErrorMessage()), HttpStatus.NOT_FOUND
         );
@@ -82,8 +103,52 @@ public class RestExceptionHandler {
     @ExceptionHandler(AnswerNotFoundException.class)
     public ResponseEntity<ErrorResponse> answerNotFoundException(AnswerNotFoundException exc,
                                                                  WebRequest request) {
+        countError(exc.getCode(), HttpStatus.NOT_FOUND);
         return new ResponseEntity<ErrorResponse>(
                 new ErrorResponse().code(exc.getCode()).message(exc.getErrorMessage()), HttpStatus.NOT_FOUND
         );
     }
+
+    /* Handle the exception in case of : invalid request parameter - e.g. page cursor or page size */
+    @ExceptionHandler(InvalidRequestException.class)
+    public ResponseEntity<ErrorResponse> invalidRequestException(InvalidRequestException exc,
+                                                                 WebRequest request) {
+        countError(exc.getCode(), HttpStatus.BAD_REQUEST);
+        return new ResponseEntity<ErrorResponse>(
+                new ErrorResponse().code(exc.getCode()).message(exc.getErrorMessage()), HttpStatus.BAD_REQUEST
+        );
+    }
+
+    /* Handle the exception in case of : the If-Match request header doesn't hold the current version of the record */
+    @ExceptionHandler(PreconditionFailedException.class)
+    public ResponseEntity<ErrorResponse> preconditionFailedException(PreconditionFailedException exc,
+                                                                     WebRequest request) {
+        countError(exc.getCode(), HttpStatus.PRECONDITION_FAILED);
+        return new ResponseEntity<ErrorResponse>(
+                new ErrorResponse().code(exc.getCode()).message(exc.getErrorMessage()), HttpStatus.PRECONDITION_FAILED
+        );
+    }
+
+    /* Handle the exception in case of : server overloaded - e.g. the password hashing pool is saturated */
+    @ExceptionHandler(ServiceUnavailableException.class)
+    public ResponseEntity<ErrorResponse> serviceUnavailableException(ServiceUnavailableException exc,
+                                                                     WebRequest request) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        countError(exc.getCode(), HttpStatus.SERVICE_UNAVAILABLE);
+        return new ResponseEntity<ErrorResponse>(
+                new ErrorResponse().code(exc.getCode()).message(exc.getErrorMessage()), headers,
+                HttpStatus.SERVICE_UNAVAILABLE
+        );
+    }
+
+    /* Count an error returned to the client, e.g. ATHR-001 or QUES-001 */
+    private void countError(final String code, final HttpStatus status) {
+        Counter.builder(ERROR_COUNTER_NAME)
+                .description("Errors returned to the clients")
+                .tag("code", code)
+                .tag("status", String.valueOf(status.value()))
+                .register(meterRegistry)
+                .increment();
+    }
 }
@@ -0,0 +1,91 @@
+package com.upgrad.quora.api;
+
+
+import com.upgrad.quora.service.datasource.ReadReplicaRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The replica is the test database itself, reached under another application name, which tells the two pools apart.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "quora.datasource.replica.url=jdbc:postgresql://localhost:5432/quora?ApplicationName=quora-replica")
+@AutoConfigureMockMvc
+public class ReadReplicaRoutingTest {
+
+    private static final String APPLICATION_NAME = "select current_setting('application_name')";
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    //This test case passes when a read only transaction reads from the replica.
+    @Test
+    public void readOnlyTransactionUsesReplica() throws Exception {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        String applicationName = readOnly.execute(status -> new JdbcTemplate(dataSource).queryForObject(APPLICATION_NAME, String.class));
+        assertEquals("quora-replica", applicationName);
+    }
+
+    //This test case passes when a read write transaction goes to the primary.
+    @Test
+    public void readWriteTransactionUsesPrimary() throws Exception {
+        TransactionTemplate readWrite = new TransactionTemplate(transactionManager);
+        String applicationName = readWrite.execute(status -> new JdbcTemplate(dataSource).queryForObject(APPLICATION_NAME, String.class));
+        assertNotEquals("quora-replica", applicationName);
+    }
+
+    //This test case passes when a listing is served through the replica, with the access token looked up on the primary.
+    @Test
+    public void getAllQuestionsThroughReplica() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/question/all?limit=1").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk());
+    }
+
+    //This test case passes when the pools of both the primary and the replica are reported in the metrics.
+    @Test
+    public void bothPoolsAreReported() throws Exception {
+        assertNotNull(meterRegistry.find("hikaricp.connections").tag("pool", "quora").gauge());
+        assertNotNull(meterRegistry.find("hikaricp.connections").tag("pool", "quora-replica").gauge());
+    }
+
+    //This test case passes when the data source closes the pools of both the primary and the replica along with the application context.
+    @Test
+    public void bothPoolsAreClosed() throws Exception {
+        assertTrue(dataSource instanceof Closeable);
+        HikariDataSource primary = new HikariDataSource();
+        HikariDataSource replica = new HikariDataSource();
+        new ReadReplicaRoutingDataSource(primary, replica).close();
+        assertTrue(primary.isClosed());
+        assertTrue(replica.isClosed());
+    }
+}
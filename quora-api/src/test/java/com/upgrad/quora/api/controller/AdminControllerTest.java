@@ -1,27 +1,53 @@
 package com.upgrad.quora.api.controller;
 
 
+import com.jayway.jsonpath.JsonPath;
+import com.upgrad.quora.api.sql.SqlCountingConfiguration;
+import com.upgrad.quora.api.sql.SqlStatementCounter;
+import com.upgrad.quora.service.dao.QuestionDao;
+import com.upgrad.quora.service.job.UserPurgeJob;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doThrow;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @RunWith(SpringRunner.class)
 @SpringBootTest
 @AutoConfigureMockMvc
+@Import(SqlCountingConfiguration.class)
 
 public class AdminControllerTest {
 
     @Autowired
     private MockMvc mvc;
 
+    @Autowired
+    private UserPurgeJob userPurgeJob;
+
+    @SpyBean
+    private QuestionDao questionDao;
+
 
     //This test case passes when you try to delete the user but the JWT token entered does not exist in the database.
     @Test
@@ -48,5 +74,106 @@ public class AdminControllerTest {
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("USR-001"));
     }
 
+    //This test case passes when a user is deleted with the lookups of the access token and the user and one update marking the user deleted, its sessions being left to the purge job.
+    @Test
+    public void deleteUserStatementCount() throws Exception {
+        String userName = UUID.randomUUID().toString().substring(0, 20);
+        MvcResult signup = mvc.perform(MockMvcRequestBuilders.post("/user/signup?firstName=a&lastName=a&userName=" + userName + "&emailAddress=" + userName + "&password=pwd&country=a&aboutMe=a&dob=a&contactNumber=a").contentType(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isCreated()).andReturn();
+        String userUuid = JsonPath.read(signup.getResponse().getContentAsString(), "$.id");
+
+        SqlStatementCounter.reset();
+        mvc.perform(MockMvcRequestBuilders.delete("/admin/user/" + userUuid).header("authorization", "database_accesstoken"))
+                .andExpect(status().isOk());
+        SqlStatementCounter.assertAtMost(3, 2);
+    }
+
+    //This test case passes when a deleted user can no longer sign in nor use its session and its questions are gone once the purge job ran.
+    @Test
+    public void deletedUserIsPurgedInTheBackground() throws Exception {
+        String userName = UUID.randomUUID().toString().substring(0, 20);
+        MvcResult signup = mvc.perform(MockMvcRequestBuilders.post("/user/signup?firstName=a&lastName=a&userName=" + userName + "&emailAddress=" + userName + "&password=pwd&country=a&aboutMe=a&dob=a&contactNumber=a").contentType(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isCreated()).andReturn();
+        String userUuid = JsonPath.read(signup.getResponse().getContentAsString(), "$.id");
+        String basic = "Basic " + Base64.getEncoder().encodeToString((userName + ":pwd").getBytes());
+        MvcResult signin = mvc.perform(MockMvcRequestBuilders.post("/user/signin").header("authorization", basic))
+                .andExpect(status().isOk()).andReturn();
+        String accessToken = signin.getResponse().getHeader("access_token");
+        MvcResult created = mvc.perform(MockMvcRequestBuilders.post("/question/create?content=my_question").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", accessToken))
+                .andExpect(status().isCreated()).andReturn();
+        String questionId = JsonPath.read(created.getResponse().getContentAsString(), "id");
+
+        mvc.perform(MockMvcRequestBuilders.delete("/admin/user/" + userUuid).header("authorization", "database_accesstoken"))
+                .andExpect(status().isOk());
+        mvc.perform(MockMvcRequestBuilders.post("/user/signin").header("authorization", basic))
+                .andExpect(status().isUnauthorized())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATH-001"));
+        mvc.perform(MockMvcRequestBuilders.post("/question/create?content=my_question").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", accessToken))
+                .andExpect(status().isForbidden())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-001"));
+
+        userPurgeJob.purgeDeletedUsers();
+        mvc.perform(MockMvcRequestBuilders.delete("/question/delete/" + questionId).header("authorization", "database_accesstoken"))
+                .andExpect(status().isNotFound())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("QUES-001"));
+    }
+
+    //This test case passes when a deleted user whose purge fails does not hold up the purge of the users deleted after it.
+    @Test
+    public void failedPurgeDoesNotBlockOtherUsers() throws Exception {
+        String[] failing = signUpWithQuestion();
+        String[] purged = signUpWithQuestion();
+        doThrow(new IllegalStateException("purge failed")).when(questionDao)
+                .getQuestionIdsOfUser(argThat(user -> user != null && failing[0].equals(user.getUuid())), anyInt());
+
+        mvc.perform(MockMvcRequestBuilders.delete("/admin/user/" + failing[0]).header("authorization", "database_accesstoken"))
+                .andExpect(status().isOk());
+        mvc.perform(MockMvcRequestBuilders.delete("/admin/user/" + purged[0]).header("authorization", "database_accesstoken"))
+                .andExpect(status().isOk());
+
+        userPurgeJob.purgeDeletedUsers();
+        mvc.perform(MockMvcRequestBuilders.delete("/question/delete/" + purged[1]).header("authorization", "database_accesstoken"))
+                .andExpect(status().isNotFound())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("QUES-001"));
+        mvc.perform(MockMvcRequestBuilders.delete("/question/delete/" + failing[1]).header("authorization", "database_accesstoken"))
+                .andExpect(status().isOk());
+    }
+
+    //This test case passes when the questions of a deleted user are no longer listed, even before the purge job ran.
+    @Test
+    public void deletedUserQuestionsAreNotListed() throws Exception {
+        String[] user = signUpWithQuestion();
+        assertTrue(listedQuestionIds().contains(user[1]));
+
+        mvc.perform(MockMvcRequestBuilders.delete("/admin/user/" + user[0]).header("authorization", "database_accesstoken"))
+                .andExpect(status().isOk());
+        assertFalse(listedQuestionIds().contains(user[1]));
+    }
 
+    /* Walk through every page of /question/all and return the uuids of the listed questions */
+    private List<String> listedQuestionIds() throws Exception {
+        List<String> ids = new ArrayList<>();
+        String cursor = null;
+        do {
+            MvcResult page = mvc.perform(MockMvcRequestBuilders.get("/question/all" + (cursor == null ? "" : "?after=" + cursor))
+                    .header("authorization", "database_accesstoken1"))
+                    .andExpect(status().isOk()).andReturn();
+            ids.addAll(JsonPath.<List<String>>read(page.getResponse().getContentAsString(), "$[*].id"));
+            cursor = page.getResponse().getHeader("next-cursor");
+        } while (cursor != null);
+        return ids;
+    }
+
+    /* Sign up a user who posts a question, and return the uuids of the user and of the question */
+    private String[] signUpWithQuestion() throws Exception {
+        String userName = UUID.randomUUID().toString().substring(0, 20);
+        MvcResult signup = mvc.perform(MockMvcRequestBuilders.post("/user/signup?firstName=a&lastName=a&userName=" + userName + "&emailAddress=" + userName + "&password=pwd&country=a&aboutMe=a&dob=a&contactNumber=a").contentType(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isCreated()).andReturn();
+        MvcResult signin = mvc.perform(MockMvcRequestBuilders.post("/user/signin").header("authorization", "Basic " + Base64.getEncoder().encodeToString((userName + ":pwd").getBytes())))
+                .andExpect(status().isOk()).andReturn();
+        MvcResult created = mvc.perform(MockMvcRequestBuilders.post("/question/create?content=my_question").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", signin.getResponse().getHeader("access_token")))
+                .andExpect(status().isCreated()).andReturn();
+        return new String[]{JsonPath.read(signup.getResponse().getContentAsString(), "$.id"),
+                JsonPath.read(created.getResponse().getContentAsString(), "id")};
+    }
 }
@@ -1,28 +1,42 @@
 package com.upgrad.quora.api.controller;
 
 
+import com.upgrad.quora.api.sql.SqlCountingConfiguration;
+import com.upgrad.quora.api.sql.SqlStatementCounter;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
+import java.util.List;
+
+import static org.hamcrest.Matchers.not;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @RunWith(SpringRunner.class)
 @SpringBootTest
 @AutoConfigureMockMvc
+@Import(SqlCountingConfiguration.class)
 
 public class AnswerControllerTest {
 
     @Autowired
     private MockMvc mvc;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
 
     //This test case passes when you try to create the answer but the JWT token entered does not exist in the database.
     @Test
@@ -136,5 +150,129 @@ public class AnswerControllerTest {
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("QUES-001"));
     }
 
+    //This test case passes when you try to get one page of the answers posted for a specific question and the question content is returned along with every answer.
+    @Test
+    public void getAllAnswersToQuestionWithPageSize() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/answer/all/database_question_uuid?limit=1&sort=oldest").header("authorization", "database_accesstoken"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].questionContent").value("database_question_content"));
+    }
+
+    //This test case passes when you try to get the answers posted for a specific question with a sort order which is not supported.
+    @Test
+    public void getAllAnswersToQuestionWithInvalidSortOrder() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/answer/all/database_question_uuid?sort=popular").header("authorization", "database_accesstoken"))
+                .andExpect(status().isBadRequest())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("REQ-003"));
+    }
+
+    //This test case passes when one page of the answers posted for a specific question is read with at most one statement for the access token and one for the page, which reads one row more than the page size.
+    @Test
+    public void getAllAnswersToQuestionStatementCount() throws Exception {
+        SqlStatementCounter.reset();
+        mvc.perform(MockMvcRequestBuilders.get("/answer/all/database_question_uuid?limit=1").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk());
+        SqlStatementCounter.assertAtMost(2, 3);
+    }
+
+    //This test case passes when the answer to be edited is loaded along with its question and owners in a single statement.
+    @Test
+    public void editAnswerWithoutOwnershipStatementCount() throws Exception {
+        SqlStatementCounter.reset();
+        mvc.perform(MockMvcRequestBuilders.put("/answer/edit/database_answer_uuid?content=edited_answer").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken"))
+                .andExpect(status().isForbidden());
+        SqlStatementCounter.assertAtMost(2, 2);
+    }
+
+    //This test case passes when the answer to be deleted is loaded along with its question and owners in a single statement.
+    @Test
+    public void deleteAnswerWithoutOwnershipStatementCount() throws Exception {
+        SqlStatementCounter.reset();
+        mvc.perform(MockMvcRequestBuilders.delete("/answer/delete/database_answer_uuid").header("authorization", "database_accesstoken2"))
+                .andExpect(status().isForbidden());
+        SqlStatementCounter.assertAtMost(2, 2);
+    }
+
+    //This test case passes when the answer is deleted by its owner with one statement, plus the update of the answer count of its question, besides the lookup of the access token.
+    @Test
+    public void deleteAnswerStatementCount() throws Exception {
+        MvcResult created = mvc.perform(MockMvcRequestBuilders.post("/question/database_question_uuid/answer/create?answer=answer_to_delete").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken1"))
+                .andExpect(status().isCreated()).andReturn();
+        String answerId = JsonPath.read(created.getResponse().getContentAsString(), "id");
+        SqlStatementCounter.reset();
+        mvc.perform(MockMvcRequestBuilders.delete("/answer/delete/" + answerId).header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("id").value(answerId));
+        SqlStatementCounter.assertAtMost(3, 2);
+    }
+
+    //This test case passes when an answer is created with one insert and one update of the answer count of its question, besides the lookups of the question, the access token and the id sequence.
+    @Test
+    public void createAnswerStatementCount() throws Exception {
+        SqlStatementCounter.reset();
+        mvc.perform(MockMvcRequestBuilders.post("/question/database_question_uuid/answer/create?answer=counted_answer").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken1"))
+                .andExpect(status().isCreated());
+        SqlStatementCounter.assertAtMost(6, 4);
+    }
+
+    //This test case passes when an answer to a question which is still cached but has been deleted elsewhere is rejected and not persisted.
+    @Test
+    public void createAnswerForQuestionDeletedBehindTheCache() throws Exception {
+        MvcResult question = mvc.perform(MockMvcRequestBuilders.post("/question/create?content=cached_question").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken1"))
+                .andExpect(status().isCreated()).andReturn();
+        String questionId = JsonPath.read(question.getResponse().getContentAsString(), "id");
+        mvc.perform(MockMvcRequestBuilders.post("/question/" + questionId + "/answer/create?answer=first_answer").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken1"))
+                .andExpect(status().isCreated());
+
+        /* Deleted by another instance of the application, whose cache is not this one */
+        jdbcTemplate.update("delete from question where uuid = ?", questionId);
+        mvc.perform(MockMvcRequestBuilders.post("/question/" + questionId + "/answer/create?answer=orphan_answer").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken1"))
+                .andExpect(status().isNotFound())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("QUES-001"));
+        Assert.assertEquals(Integer.valueOf(0), jdbcTemplate.queryForObject("select count(*) from answer where ans = 'orphan_answer'", Integer.class));
+    }
+
+    //This test case passes when a page of the answers is answered with 304 while it is unchanged, and with a new ETag once one of its answers is edited.
+    @Test
+    public void getAllAnswersNotModifiedUntilAnswerEdited() throws Exception {
+        MvcResult question = mvc.perform(MockMvcRequestBuilders.post("/question/create?content=etag_question").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken1"))
+                .andExpect(status().isCreated()).andReturn();
+        String questionId = JsonPath.read(question.getResponse().getContentAsString(), "id");
+        MvcResult created = mvc.perform(MockMvcRequestBuilders.post("/question/" + questionId + "/answer/create?answer=etag_answer").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken1"))
+                .andExpect(status().isCreated()).andReturn();
+        String answerId = JsonPath.read(created.getResponse().getContentAsString(), "id");
+        MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/answer/all/" + questionId + "?limit=1").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").value(answerId)).andReturn();
+        String etag = result.getResponse().getHeader("ETag");
+        mvc.perform(MockMvcRequestBuilders.get("/answer/all/" + questionId + "?limit=1").header("authorization", "database_accesstoken1").header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(MockMvcResultMatchers.content().string(""));
+        mvc.perform(MockMvcRequestBuilders.put("/answer/edit/" + answerId + "?content=edited_etag_answer").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk());
+        mvc.perform(MockMvcRequestBuilders.get("/answer/all/" + questionId + "?limit=1").header("authorization", "database_accesstoken1").header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string("ETag", not(etag)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].answerContent").value("edited_etag_answer"));
+    }
 
+    //This test case passes when many concurrent edits of the same answer without If-Match all succeed and none of them is lost.
+    @Test
+    public void editAnswerConcurrentlyLosesNoUpdate() throws Exception {
+        MvcResult created = mvc.perform(MockMvcRequestBuilders.post("/question/database_question_uuid/answer/create?answer=contended_answer").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken1"))
+                .andExpect(status().isCreated()).andReturn();
+        final String answerId = JsonPath.read(created.getResponse().getContentAsString(), "id");
+
+        /* Every thread writes a different content, an unchanged content would not be updated at all */
+        List<Integer> statuses = ConcurrentRequests.perform(mvc, 8, i -> MockMvcRequestBuilders.put("/answer/edit/" + answerId + "?content=edited_by_thread_" + i).contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken1"));
+        for (int code : statuses) {
+            Assert.assertEquals(200, code);
+        }
+
+        /* Every edit moved the version forward exactly once */
+        mvc.perform(MockMvcRequestBuilders.put("/answer/edit/" + answerId + "?content=final_edit").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken1").header("If-Match", "\"" + statuses.size() + "\""))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string("ETag", "\"" + (statuses.size() + 1) + "\""));
+    }
 }
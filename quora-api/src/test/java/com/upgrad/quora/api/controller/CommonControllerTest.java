@@ -1,13 +1,17 @@
 package com.upgrad.quora.api.controller;
 
 
+import com.upgrad.quora.api.sql.SqlCountingConfiguration;
+import com.upgrad.quora.api.sql.SqlStatementCounter;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
@@ -16,6 +20,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 @RunWith(SpringRunner.class)
 @SpringBootTest
 @AutoConfigureMockMvc
+@Import(SqlCountingConfiguration.class)
 public class CommonControllerTest {
 
     @Autowired
@@ -43,4 +48,44 @@ public class CommonControllerTest {
                 .andExpect(status().isNotFound())
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("USR-001"));
     }
+
+    //This test case passes when you try to get the details of the existing user but the JWT token entered has expired.
+    @Test
+    public void detailsUsingExpiredAccessToken() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/userprofile/database_uuid1").header("authorization", "database_expired_accesstoken"))
+                .andExpect(status().isForbidden())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-002"));
+    }
+
+    //This test case passes when the details of a user are read with at most one statement for the access token and one for the user.
+    @Test
+    public void detailsStatementCount() throws Exception {
+        SqlStatementCounter.reset();
+        mvc.perform(MockMvcRequestBuilders.get("/userprofile/database_uuid1").header("authorization", "database_accesstoken"))
+                .andExpect(status().isOk());
+        SqlStatementCounter.assertAtMost(2, 2);
+    }
+
+    //This test case passes when the details of a user looked up before are served from the cache, without reading the user again.
+    @Test
+    public void detailsServedFromCache() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/userprofile/database_uuid1").header("authorization", "database_accesstoken"))
+                .andExpect(status().isOk());
+        SqlStatementCounter.reset();
+        mvc.perform(MockMvcRequestBuilders.get("/userprofile/database_uuid1").header("authorization", "database_accesstoken"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("user_name").exists());
+        SqlStatementCounter.assertAtMost(1, 1);
+    }
+
+    //This test case passes when the details of a user which did not change since the ETag held by the client are answered with 304 without a body.
+    @Test
+    public void detailsNotModified() throws Exception {
+        MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/userprofile/database_uuid1").header("authorization", "database_accesstoken"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.header().exists("ETag")).andReturn();
+        mvc.perform(MockMvcRequestBuilders.get("/userprofile/database_uuid1").header("authorization", "database_accesstoken").header("If-None-Match", result.getResponse().getHeader("ETag")))
+                .andExpect(status().isNotModified())
+                .andExpect(MockMvcResultMatchers.content().string(""));
+    }
 }
@@ -0,0 +1,52 @@
+package com.upgrad.quora.api.controller;
+
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+
+/**
+ * ConcurrentRequests performs requests on many threads at once, each thread waiting for all the others to be ready so
+ * that the requests contend as much as possible.
+ */
+final class ConcurrentRequests {
+
+    private ConcurrentRequests() {
+    }
+
+    /**
+     * @param mvc     - MockMvc to perform the requests with
+     * @param threads - number of requests, each performed on a thread of its own
+     * @param request - builds the request of the given thread number
+     * @return - the status of every request, in the order of the thread numbers
+     */
+    static List<Integer> perform(final MockMvc mvc, final int threads, final IntFunction<RequestBuilder> request)
+            throws Exception {
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                final RequestBuilder builder = request.apply(i);
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return mvc.perform(builder).andReturn().getResponse().getStatus();
+                }));
+            }
+            start.countDown();
+            List<Integer> statuses = new ArrayList<>();
+            for (Future<Integer> future : futures) {
+                statuses.add(future.get());
+            }
+            return statuses;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.upgrad.quora.api.controller;
+
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+public class MetricsEndpointTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    //This test case passes when the request timers, the DAO timers, the error counters, the access token cache and the password hashing pool are scraped from the metrics endpoint.
+    @Test
+    public void scrapeMetrics() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/userprofile/database_uuid1").header("authorization", "non_existing_access_token"))
+                .andExpect(status().isForbidden());
+        mvc.perform(MockMvcRequestBuilders.get("/metrics"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.content().string(containsString("http_server_requests_seconds_bucket")))
+                .andExpect(MockMvcResultMatchers.content().string(containsString("quora_dao_seconds_count")))
+                .andExpect(MockMvcResultMatchers.content().string(containsString("code=\"ATHR-001\"")))
+                .andExpect(MockMvcResultMatchers.content().string(containsString("cache=\"access-tokens\"")))
+                .andExpect(MockMvcResultMatchers.content().string(containsString("quora_password_hashing_queue_depth")))
+                .andExpect(MockMvcResultMatchers.content().string(containsString("quora_password_hashing_rejected_total")));
+    }
+}
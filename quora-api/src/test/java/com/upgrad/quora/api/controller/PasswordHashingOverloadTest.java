@@ -0,0 +1,98 @@
+package com.upgrad.quora.api.controller;
+
+
+import com.upgrad.quora.service.business.PasswordCryptographyProvider;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The password hashing pool has one thread and one queue slot. The hash of a sign up is held until the test releases
+ * it, so the pool is known to be full when the next sign up comes.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {"quora.password-hashing.threads=1", "quora.password-hashing.queue-capacity=1"})
+@AutoConfigureMockMvc
+public class PasswordHashingOverloadTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @MockBean
+    private PasswordCryptographyProvider cryptographyProvider;
+
+    //This test case passes when a sign up which finds the password hashing pool and its queue full is turned away with 503, HSH-001 and a Retry-After header.
+    @Test
+    public void signupRejectedWhenHashingPoolIsFull() throws Exception {
+        final CountDownLatch hashing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        when(cryptographyProvider.encrypt(anyString())).thenAnswer(invocation -> {
+            hashing.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return new String[]{"salt", "hash"};
+        });
+        final double rejectedBefore = meterRegistry.get("quora.password.hashing.rejected").counter().count();
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            /* One sign up holds the hashing thread and the next one waits in the queue */
+            Future<Integer> running = executor.submit(() -> signup().getResponse().getStatus());
+            Assert.assertTrue(hashing.await(10, TimeUnit.SECONDS));
+            Future<Integer> queued = executor.submit(() -> signup().getResponse().getStatus());
+            long deadline = System.currentTimeMillis() + 10000;
+            while (meterRegistry.get("quora.password.hashing.queue.depth").gauge().value() < 1) {
+                Assert.assertTrue("The second sign up was never queued", System.currentTimeMillis() < deadline);
+                Thread.sleep(10);
+            }
+
+            mvc.perform(signupRequest())
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(MockMvcResultMatchers.jsonPath("code").value("HSH-001"))
+                    .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.RETRY_AFTER, "1"));
+            Assert.assertEquals(rejectedBefore + 1, meterRegistry.get("quora.password.hashing.rejected").counter().count(), 0);
+
+            release.countDown();
+            Assert.assertEquals(201, (int) running.get(10, TimeUnit.SECONDS));
+            Assert.assertEquals(201, (int) queued.get(10, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    private MvcResult signup() throws Exception {
+        return mvc.perform(signupRequest()).andReturn();
+    }
+
+    private RequestBuilder signupRequest() {
+        String userName = UUID.randomUUID().toString().substring(0, 20);
+        return MockMvcRequestBuilders.post("/user/signup?firstName=a&lastName=a&userName=" + userName + "&emailAddress=" + userName + "&password=pwd&country=a&aboutMe=a&dob=a&contactNumber=a").contentType(MediaType.APPLICATION_JSON_UTF8);
+    }
+}
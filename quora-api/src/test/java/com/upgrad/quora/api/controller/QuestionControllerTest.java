@@ -1,22 +1,32 @@
 package com.upgrad.quora.api.controller;
 
 
+import com.upgrad.quora.api.sql.SqlCountingConfiguration;
+import com.upgrad.quora.api.sql.SqlStatementCounter;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
+import java.util.List;
+
+import static org.hamcrest.Matchers.not;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @RunWith(SpringRunner.class)
 @SpringBootTest
 @AutoConfigureMockMvc
+@Import(SqlCountingConfiguration.class)
 
 public class QuestionControllerTest {
 
@@ -40,6 +50,38 @@ public class QuestionControllerTest {
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-002"));
     }
 
+    //This test case passes when you create many questions in a single request and the JWT token entered exists in the database and the user corresponding to that JWT token is signed in.
+    @Test
+    public void createQuestionsInBatch() throws Exception {
+        StringBuilder contents = new StringBuilder();
+        for (int i = 0; i < 120; i++) {
+            contents.append(i == 0 ? "" : ",").append("\"batch question ").append(i).append("\"");
+        }
+        SqlStatementCounter.reset();
+        mvc.perform(MockMvcRequestBuilders.post("/question/create/batch").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).content("{\"contents\":[" + contents + "]}").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isCreated())
+                .andExpect(MockMvcResultMatchers.jsonPath("ids.length()").value(120))
+                .andExpect(MockMvcResultMatchers.jsonPath("status").value("QUESTIONS CREATED"));
+        /* The access token lookup, the id sequence once every 50 ids and one JDBC batch of inserts per 50 questions */
+        SqlStatementCounter.assertAtMost(8, 5);
+    }
+
+    //This test case passes when you try to create questions in a single request but one of the contents is empty, and none of the questions are created.
+    @Test
+    public void createQuestionsInBatchWithEmptyContent() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.post("/question/create/batch").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).content("{\"contents\":[\"first question\",\" \"]}").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isBadRequest())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("REQ-005"));
+    }
+
+    //This test case passes when you try to create questions in a single request but the JWT token entered does not exist in the database.
+    @Test
+    public void createQuestionsInBatchWithNonExistingAccessToken() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.post("/question/create/batch").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).content("{\"contents\":[\"my_question\"]}").header("authorization", "non_existing_access_token"))
+                .andExpect(status().isForbidden())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-001"));
+    }
+
     //This test case passes when you try to get the detail of all the questions and the JWT token entered exists in the database and the user corresponding to that JWT token is signed in.
     @Test
     public void getAllQuestions() throws Exception {
@@ -63,6 +105,30 @@ public class QuestionControllerTest {
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-002"));
     }
 
+    //This test case passes when you try to get one page of the questions and the page holds no more questions than the requested page size.
+    @Test
+    public void getAllQuestionsWithPageSize() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/question/all?limit=1").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(1));
+    }
+
+    //This test case passes when you try to get the questions with a page cursor which was not issued by the server.
+    @Test
+    public void getAllQuestionsWithInvalidCursor() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/question/all?after=not_a_cursor").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isBadRequest())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("REQ-001"));
+    }
+
+    //This test case passes when you try to get the questions with a page size which is not positive.
+    @Test
+    public void getAllQuestionsWithInvalidPageSize() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/question/all?limit=0").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isBadRequest())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("REQ-002"));
+    }
+
     //This test case passes when you try to edit the question but the JWT token entered does not exist in the database.
     @Test
     public void editQuestionWithNonExistingAccessToken() throws Exception {
@@ -152,6 +218,182 @@ public class QuestionControllerTest {
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("USR-001"));
     }
 
+    //This test case passes when you get all the questions posted by a specific user along with the number of answers to every question.
+    @Test
+    public void getAllQuestionsByUserWithAnswerCount() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/question/all/database_uuid1").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[?(@.id == 'database_question_uuid')].answerCount").isNotEmpty())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[?(@.id == 'database_question_uuid')].lastAnswerAt").isNotEmpty());
+    }
 
-}
+    //This test case passes when you search the questions and the JWT token entered exists in the database and the user corresponding to that JWT token is signed in.
+    @Test
+    public void searchQuestions() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/question/search?q=database_question_content&limit=500").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[?(@.id == 'database_question_uuid')]").exists());
+    }
+
+    //This test case passes when you search the questions with a text which holds no word.
+    @Test
+    public void searchQuestionsWithoutWords() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/question/search").param("q", " ?!").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isBadRequest())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("REQ-006"));
+    }
+
+    //This test case passes when you try to search the questions but the JWT token entered does not exist in the database.
+    @Test
+    public void searchQuestionsWithNonExistingAccessToken() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/question/search?q=question").header("authorization", "non_existing_access_token"))
+                .andExpect(status().isForbidden())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-001"));
+    }
+
+    //This test case passes when you get the hot questions and the JWT token entered exists in the database and the user corresponding to that JWT token is signed in.
+    @Test
+    public void getHotQuestions() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/question/hot?limit=10").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$").isArray());
+    }
 
+    //This test case passes when you try to get the hot questions but the JWT token entered does not exist in the database.
+    @Test
+    public void getHotQuestionsWithNonExistingAccessToken() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/question/hot").header("authorization", "non_existing_access_token"))
+                .andExpect(status().isForbidden())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-001"));
+    }
+
+    //This test case passes when the question to be edited is loaded along with its owner in a single statement.
+    @Test
+    public void editQuestionWithoutOwnershipStatementCount() throws Exception {
+        SqlStatementCounter.reset();
+        mvc.perform(MockMvcRequestBuilders.put("/question/edit/database_question_uuid?content=edited_question").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken"))
+                .andExpect(status().isForbidden());
+        SqlStatementCounter.assertAtMost(2, 2);
+    }
+
+    //This test case passes when the question is edited by its owner with one statement besides the lookup of the access token, and a stale If-Match is refused by that same statement.
+    @Test
+    public void editQuestionStatementCount() throws Exception {
+        MvcResult created = mvc.perform(MockMvcRequestBuilders.post("/question/create?content=question_to_edit").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken1"))
+                .andExpect(status().isCreated()).andReturn();
+        String questionId = JsonPath.read(created.getResponse().getContentAsString(), "id");
+        SqlStatementCounter.reset();
+        mvc.perform(MockMvcRequestBuilders.put("/question/edit/" + questionId + "?content=edited_question").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken1").header("If-Match", "\"0\""))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string("ETag", "\"1\""));
+        SqlStatementCounter.assertAtMost(2, 2);
+        SqlStatementCounter.reset();
+        mvc.perform(MockMvcRequestBuilders.put("/question/edit/" + questionId + "?content=stale_edit").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken1").header("If-Match", "\"0\""))
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("EDIT-001"));
+        SqlStatementCounter.assertAtMost(2, 2);
+    }
+
+    //This test case passes when one page of the questions is read with at most one statement for the access token and one for the page, which reads one row more than the page size.
+    @Test
+    public void getAllQuestionsStatementCount() throws Exception {
+        SqlStatementCounter.reset();
+        mvc.perform(MockMvcRequestBuilders.get("/question/all?limit=1").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk());
+        SqlStatementCounter.assertAtMost(2, 3);
+    }
+
+    //This test case passes when the question to be deleted is loaded along with its owner in a single statement.
+    @Test
+    public void deleteQuestionWithoutOwnershipStatementCount() throws Exception {
+        SqlStatementCounter.reset();
+        mvc.perform(MockMvcRequestBuilders.delete("/question/delete/database_question_uuid").header("authorization", "database_accesstoken2"))
+                .andExpect(status().isForbidden());
+        SqlStatementCounter.assertAtMost(2, 2);
+    }
+
+    //This test case passes when the questions posted by a specific user are read in a single statement, one row per question, whatever the number of questions.
+    @Test
+    public void getAllQuestionsByUserStatementCount() throws Exception {
+        SqlStatementCounter.reset();
+        MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/question/all/database_uuid1").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk()).andReturn();
+        int questions = JsonPath.read(result.getResponse().getContentAsString(), "$.length()");
+        SqlStatementCounter.assertAtMost(3, 2 + questions);
+    }
+
+    //This test case passes when one page of the search results is read with at most one statement for the access token and one for the search, which reads one row more than the page size.
+    @Test
+    public void searchQuestionsStatementCount() throws Exception {
+        SqlStatementCounter.reset();
+        mvc.perform(MockMvcRequestBuilders.get("/question/search?q=database_question_content&limit=1").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk());
+        SqlStatementCounter.assertAtMost(2, 3);
+    }
+
+    //This test case passes when the hot questions are served without any statement besides the access token lookup.
+    @Test
+    public void getHotQuestionsStatementCount() throws Exception {
+        SqlStatementCounter.reset();
+        mvc.perform(MockMvcRequestBuilders.get("/question/hot?limit=10").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk());
+        SqlStatementCounter.assertAtMost(1, 1);
+    }
+
+    //This test case passes when a page of the questions which has not changed since the ETag held by the client is answered with 304 without any statement.
+    @Test
+    public void getAllQuestionsNotModified() throws Exception {
+        MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/question/all?limit=1").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.header().exists("ETag")).andReturn();
+        String etag = result.getResponse().getHeader("ETag");
+        SqlStatementCounter.reset();
+        mvc.perform(MockMvcRequestBuilders.get("/question/all?limit=1").header("authorization", "database_accesstoken1").header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(MockMvcResultMatchers.content().string(""));
+        SqlStatementCounter.assertAtMost(0, 0);
+    }
+
+    //This test case passes when the questions of a user are served again with a new ETag once the user has posted another question.
+    @Test
+    public void getAllQuestionsByUserModifiedByNewQuestion() throws Exception {
+        MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/question/all/database_uuid1").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk()).andReturn();
+        String etag = result.getResponse().getHeader("ETag");
+        int questions = JsonPath.read(result.getResponse().getContentAsString(), "$.length()");
+        mvc.perform(MockMvcRequestBuilders.post("/question/create?content=etag_question").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken1"))
+                .andExpect(status().isCreated());
+        mvc.perform(MockMvcRequestBuilders.get("/question/all/database_uuid1").header("authorization", "database_accesstoken1").header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string("ETag", not(etag)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(questions + 1));
+    }
+
+    //This test case passes when many concurrent edits of the same version of a question are made and exactly one of them succeeds, the others are rejected with 412.
+    @Test
+    public void editQuestionConcurrentlyWithIfMatch() throws Exception {
+        MvcResult created = mvc.perform(MockMvcRequestBuilders.post("/question/create?content=contended_question").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken1"))
+                .andExpect(status().isCreated())
+                .andExpect(MockMvcResultMatchers.header().string("ETag", "\"0\"")).andReturn();
+        final String questionId = JsonPath.read(created.getResponse().getContentAsString(), "id");
+
+        /* Every thread writes a different content, an unchanged content would not be updated at all */
+        List<Integer> statuses = ConcurrentRequests.perform(mvc, 8, i -> MockMvcRequestBuilders.put("/question/edit/" + questionId + "?content=edited_by_thread_" + i).contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken1").header("If-Match", "\"0\""));
+        int succeeded = 0;
+        for (int code : statuses) {
+            if (code == 200) {
+                succeeded++;
+            } else {
+                Assert.assertEquals(412, code);
+            }
+        }
+        Assert.assertEquals(1, succeeded);
+
+        mvc.perform(MockMvcRequestBuilders.put("/question/edit/" + questionId + "?content=stale_edit").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken1").header("If-Match", "\"0\""))
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("EDIT-001"));
+        mvc.perform(MockMvcRequestBuilders.put("/question/edit/" + questionId + "?content=fresh_edit").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken1").header("If-Match", "\"1\""))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string("ETag", "\"2\""));
+    }
+}
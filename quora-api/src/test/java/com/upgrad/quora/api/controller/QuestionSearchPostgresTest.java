@@ -0,0 +1,85 @@
+package com.upgrad.quora.api.controller;
+
+
+import com.jayway.jsonpath.JsonPath;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The search of GET /question/search with the full text search of PostgreSQL, see QuestionSearchDao.
+ * Every test searches a word of its own, so the questions posted by the other tests never match.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "quora.search.mode=postgres")
+@AutoConfigureMockMvc
+public class QuestionSearchPostgresTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    //This test case passes when the questions matching in their content rank above those matching in an answer only, and every match is returned exactly once across the pages.
+    @Test
+    public void searchQuestionsRankedAndPaged() throws Exception {
+        String word = "pg" + UUID.randomUUID().toString().replace("-", "");
+        /* Three questions with the same content, whose scores are equal and only told apart by the id of the cursor */
+        Set<String> contentMatches = new HashSet<>();
+        for (int i = 0; i < 3; i++) {
+            contentMatches.add(createQuestion("question about " + word));
+        }
+        Set<String> answerMatches = new HashSet<>();
+        for (int i = 0; i < 2; i++) {
+            String questionId = createQuestion("question about something else");
+            mvc.perform(MockMvcRequestBuilders.post("/question/" + questionId + "/answer/create?answer=answer about " + word).contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken1"))
+                    .andExpect(status().isCreated());
+            answerMatches.add(questionId);
+        }
+
+        List<List<String>> pages = new ArrayList<>();
+        String after = null;
+        do {
+            MockHttpServletRequestBuilder request = MockMvcRequestBuilders.get("/question/search").param("q", word).param("limit", "2")
+                    .header("authorization", "database_accesstoken1");
+            if (after != null) {
+                request.param("after", after);
+            }
+            MvcResult result = mvc.perform(request).andExpect(status().isOk()).andReturn();
+            pages.add(JsonPath.read(result.getResponse().getContentAsString(), "$[*].id"));
+            after = result.getResponse().getHeader("next-cursor");
+        } while (after != null);
+
+        /* The second page starts after the equal scores of the first page, on the id of its last question */
+        for (String id : pages.get(1)) {
+            Assert.assertFalse("Second page repeats " + id, pages.get(0).contains(id));
+        }
+        List<String> found = new ArrayList<>();
+        pages.forEach(found::addAll);
+        Assert.assertEquals(5, found.size());
+        Assert.assertEquals(5, new HashSet<>(found).size());
+        Assert.assertEquals(contentMatches, new HashSet<>(found.subList(0, 3)));
+        Assert.assertEquals(answerMatches, new HashSet<>(found.subList(3, 5)));
+    }
+
+    private String createQuestion(final String content) throws Exception {
+        MvcResult created = mvc.perform(MockMvcRequestBuilders.post("/question/create").param("content", content).contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken1"))
+                .andExpect(status().isCreated()).andReturn();
+        return JsonPath.read(created.getResponse().getContentAsString(), "id");
+    }
+}
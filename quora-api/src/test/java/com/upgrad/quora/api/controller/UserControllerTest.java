@@ -1,21 +1,30 @@
 package com.upgrad.quora.api.controller;
 
+import com.jayway.jsonpath.JsonPath;
+import com.upgrad.quora.api.sql.SqlCountingConfiguration;
+import com.upgrad.quora.api.sql.SqlStatementCounter;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
+import java.util.Base64;
+import java.util.UUID;
+
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @RunWith(SpringRunner.class)
-@SpringBootTest
+@SpringBootTest(properties = "quora.auth.jwt.stateless=true")
 @AutoConfigureMockMvc
+@Import(SqlCountingConfiguration.class)
 public class UserControllerTest {
 
     @Autowired
@@ -45,4 +54,84 @@ public class UserControllerTest {
                 .andExpect(status().isUnauthorized())
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("SGR-001"));
     }
+
+    //This test case passes when a token which has already been used (and therefore cached) is rejected right after the user signs out.
+    @Test
+    public void signedOutAccessTokenIsNotServedFromCache() throws Exception {
+        String userName = UUID.randomUUID().toString().substring(0, 20);
+        mvc.perform(MockMvcRequestBuilders.post("/user/signup?firstName=a&lastName=a&userName=" + userName + "&emailAddress=" + userName + "&password=pwd&country=a&aboutMe=a&dob=a&contactNumber=a").contentType(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isCreated());
+        MvcResult signin = mvc.perform(MockMvcRequestBuilders.post("/user/signin").header("authorization", "Basic " + Base64.getEncoder().encodeToString((userName + ":pwd").getBytes())))
+                .andExpect(status().isOk()).andReturn();
+        String accessToken = signin.getResponse().getHeader("access_token");
+
+        mvc.perform(MockMvcRequestBuilders.get("/userprofile/database_uuid1").header("authorization", accessToken))
+                .andExpect(status().isOk());
+        mvc.perform(MockMvcRequestBuilders.post("/user/signout").header("authorization", accessToken))
+                .andExpect(status().isOk());
+        mvc.perform(MockMvcRequestBuilders.get("/userprofile/database_uuid1").header("authorization", accessToken))
+                .andExpect(status().isForbidden())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-002"));
+    }
+
+    //This test case passes when a signed access token, accepted without a lookup, is rejected right after its user has been deleted.
+    @Test
+    public void signedAccessTokenOfDeletedUserIsRevoked() throws Exception {
+        String userName = UUID.randomUUID().toString().substring(0, 20);
+        MvcResult signup = mvc.perform(MockMvcRequestBuilders.post("/user/signup?firstName=a&lastName=a&userName=" + userName + "&emailAddress=" + userName + "&password=pwd&country=a&aboutMe=a&dob=a&contactNumber=a").contentType(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isCreated()).andReturn();
+        String userUuid = JsonPath.read(signup.getResponse().getContentAsString(), "$.id");
+        MvcResult signin = mvc.perform(MockMvcRequestBuilders.post("/user/signin").header("authorization", "Basic " + Base64.getEncoder().encodeToString((userName + ":pwd").getBytes())))
+                .andExpect(status().isOk()).andReturn();
+        String accessToken = signin.getResponse().getHeader("access_token");
+
+        mvc.perform(MockMvcRequestBuilders.get("/userprofile/database_uuid1").header("authorization", accessToken))
+                .andExpect(status().isOk());
+        mvc.perform(MockMvcRequestBuilders.delete("/admin/user/" + userUuid).header("authorization", "database_accesstoken"))
+                .andExpect(status().isOk());
+        mvc.perform(MockMvcRequestBuilders.get("/userprofile/database_uuid1").header("authorization", accessToken))
+                .andExpect(status().isForbidden())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-001"));
+    }
+
+    //This test case passes when signup, signin and signout each issue only the lookups and the single write they need.
+    @Test
+    public void signupSigninSignoutStatementCount() throws Exception {
+        String userName = UUID.randomUUID().toString().substring(0, 20);
+        /* Username and email lookups, the id sequence and the insert */
+        SqlStatementCounter.reset();
+        mvc.perform(MockMvcRequestBuilders.post("/user/signup?firstName=a&lastName=a&userName=" + userName + "&emailAddress=" + userName + "&password=pwd&country=a&aboutMe=a&dob=a&contactNumber=a").contentType(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isCreated());
+        SqlStatementCounter.assertAtMost(5, 2);
+
+        /* User lookup, the id sequence and the insert of the session */
+        SqlStatementCounter.reset();
+        MvcResult signin = mvc.perform(MockMvcRequestBuilders.post("/user/signin").header("authorization", "Basic " + Base64.getEncoder().encodeToString((userName + ":pwd").getBytes())))
+                .andExpect(status().isOk()).andReturn();
+        SqlStatementCounter.assertAtMost(4, 3);
+        String accessToken = signin.getResponse().getHeader("access_token");
+
+        /* Session lookup along with its user and the update of the session */
+        SqlStatementCounter.reset();
+        mvc.perform(MockMvcRequestBuilders.post("/user/signout").header("authorization", accessToken))
+                .andExpect(status().isOk());
+        SqlStatementCounter.assertAtMost(2, 1);
+    }
+
+    //This test case passes when a signed access token, accepted without a lookup, is used to post a question, which needs its user as a persistent reference.
+    @Test
+    public void signedAccessTokenPostsQuestionWithoutTokenLookup() throws Exception {
+        String userName = UUID.randomUUID().toString().substring(0, 20);
+        mvc.perform(MockMvcRequestBuilders.post("/user/signup?firstName=a&lastName=a&userName=" + userName + "&emailAddress=" + userName + "&password=pwd&country=a&aboutMe=a&dob=a&contactNumber=a").contentType(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isCreated());
+        MvcResult signin = mvc.perform(MockMvcRequestBuilders.post("/user/signin").header("authorization", "Basic " + Base64.getEncoder().encodeToString((userName + ":pwd").getBytes())))
+                .andExpect(status().isOk()).andReturn();
+        String accessToken = signin.getResponse().getHeader("access_token");
+
+        /* The id sequence, read twice when it is first used, and the insert of the question, without any session lookup */
+        SqlStatementCounter.reset();
+        mvc.perform(MockMvcRequestBuilders.post("/question/create?content=signed_token_question").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", accessToken))
+                .andExpect(status().isCreated());
+        SqlStatementCounter.assertAtMost(3, 2);
+    }
 }
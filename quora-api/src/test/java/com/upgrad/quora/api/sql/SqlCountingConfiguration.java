@@ -0,0 +1,24 @@
+package com.upgrad.quora.api.sql;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import javax.sql.DataSource;
+
+/**
+ * Import this configuration into a test to count the SQL statements and rows of every request with {@link SqlStatementCounter}.
+ */
+@TestConfiguration
+public class SqlCountingConfiguration {
+
+    @Bean
+    public static BeanPostProcessor sqlCountingDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(final Object bean, final String beanName) {
+                return bean instanceof DataSource ? SqlStatementCounter.wrap((DataSource) bean) : bean;
+            }
+        };
+    }
+}
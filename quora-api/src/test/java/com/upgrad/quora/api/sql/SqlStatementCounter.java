@@ -0,0 +1,108 @@
+package com.upgrad.quora.api.sql;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * SqlStatementCounter counts the SQL statements executed and the result set rows read by the current thread through a
+ * wrapped DataSource.
+ * MockMvc serves a request on the thread of the test, so the counts taken around a request hold exactly the statements
+ * and rows of that request, and nothing run by the background jobs.
+ */
+public final class SqlStatementCounter {
+
+    private static final ThreadLocal<long[]> STATEMENTS = ThreadLocal.withInitial(() -> new long[1]);
+
+    private static final ThreadLocal<long[]> ROWS = ThreadLocal.withInitial(() -> new long[1]);
+
+    private SqlStatementCounter() {
+    }
+
+    /* Start counting from zero on the current thread */
+    public static void reset() {
+        STATEMENTS.get()[0] = 0;
+        ROWS.get()[0] = 0;
+    }
+
+    /* Number of statements executed by the current thread since the last reset, a JDBC batch counts as one */
+    public static long getStatementCount() {
+        return STATEMENTS.get()[0];
+    }
+
+    /* Number of result set rows read by the current thread since the last reset */
+    public static long getRowCount() {
+        return ROWS.get()[0];
+    }
+
+    /* Fail unless the current thread executed at most maxStatements statements and read at most maxRows rows */
+    public static void assertAtMost(final long maxStatements, final long maxRows) {
+        final long statements = getStatementCount();
+        final long rows = getRowCount();
+        if (statements > maxStatements || rows > maxRows) {
+            throw new AssertionError("Expected at most " + maxStatements + " statements and " + maxRows
+                    + " rows but " + statements + " statements were executed and " + rows + " rows were read");
+        }
+    }
+
+    /* Wrap a DataSource so that every statement executed on its connections is counted */
+    public static DataSource wrap(final DataSource dataSource) {
+        return proxy(DataSource.class, dataSource, (target, method, args) -> {
+            Object result = invoke(target, method, args);
+            return result instanceof Connection ? wrapConnection((Connection) result) : result;
+        });
+    }
+
+    private static Connection wrapConnection(final Connection connection) {
+        return proxy(Connection.class, connection, (target, method, args) -> {
+            Object result = invoke(target, method, args);
+            if (result instanceof Statement && Statement.class.isAssignableFrom(method.getReturnType())) {
+                return wrapStatement(method.getReturnType(), (Statement) result);
+            }
+            return result;
+        });
+    }
+
+    private static Object wrapStatement(final Class<?> type, final Statement statement) {
+        return proxy(type, statement, (target, method, args) -> {
+            if (method.getName().startsWith("execute")) {
+                STATEMENTS.get()[0]++;
+            }
+            Object result = invoke(target, method, args);
+            return result instanceof ResultSet ? wrapResultSet((ResultSet) result) : result;
+        });
+    }
+
+    private static ResultSet wrapResultSet(final ResultSet resultSet) {
+        return proxy(ResultSet.class, resultSet, (target, method, args) -> {
+            Object result = invoke(target, method, args);
+            if (method.getName().equals("next") && Boolean.TRUE.equals(result)) {
+                ROWS.get()[0]++;
+            }
+            return result;
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(final Class<T> type, final Object target, final TargetInvocationHandler handler) {
+        InvocationHandler invocationHandler = (proxy, method, args) -> handler.invoke(target, method, args);
+        return (T) Proxy.newProxyInstance(SqlStatementCounter.class.getClassLoader(), new Class<?>[]{type}, invocationHandler);
+    }
+
+    private static Object invoke(final Object target, final Method method, final Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private interface TargetInvocationHandler {
+        Object invoke(Object target, Method method, Object[] args) throws Throwable;
+    }
+}
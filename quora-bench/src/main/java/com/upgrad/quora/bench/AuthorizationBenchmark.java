@@ -0,0 +1,36 @@
+package com.upgrad.quora.bench;
+
+import com.upgrad.quora.service.entity.UserAuthEntity;
+import com.upgrad.quora.service.exception.AuthorizationFailedException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Access token verification done by every authenticated endpoint, served from the access token cache
+ * and from the database.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuthorizationBenchmark {
+
+    @Benchmark
+    public UserAuthEntity checkAuthorizationCached(final QuoraState state) throws AuthorizationFailedException {
+        return state.authorizationService.checkAuthorization(state.accessToken, "User is signed out");
+    }
+
+    @Benchmark
+    public UserAuthEntity checkAuthorizationUncached(final QuoraState state) throws AuthorizationFailedException {
+        state.authorizationService.invalidateAccessToken(state.accessToken);
+        return state.authorizationService.checkAuthorization(state.accessToken, "User is signed out");
+    }
+}
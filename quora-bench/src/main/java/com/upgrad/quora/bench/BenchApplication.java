@@ -0,0 +1,28 @@
+package com.upgrad.quora.bench;
+
+import com.upgrad.quora.service.ServiceConfiguration;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Import;
+
+/**
+ * Application context the benchmarks run in: the service layer and the controllers of quora-api, without a web server,
+ * backed by the in-memory database configured in application-bench.yaml.
+ */
+@SpringBootConfiguration
+@EnableAutoConfiguration
+@ComponentScan("com.upgrad.quora.api.controller")
+@Import(ServiceConfiguration.class)
+public class BenchApplication {
+
+    public static ConfigurableApplicationContext start() {
+        return new SpringApplicationBuilder(BenchApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("bench")
+                .run();
+    }
+}
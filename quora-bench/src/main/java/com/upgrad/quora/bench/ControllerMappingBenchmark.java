@@ -0,0 +1,54 @@
+package com.upgrad.quora.bench;
+
+import com.upgrad.quora.api.model.AnswerDetailsResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Listing endpoints of QuestionController and AnswerController called on the controller beans, without HTTP:
+ * page query plus the entity to response DTO mapping.
+ * The questions are served as pre-serialized JSON from the QuestionPageCache, getAllQuestions measures a cache hit
+ * and getAllQuestionsUncached the page query, mapping and JSON serialization of a miss.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ControllerMappingBenchmark {
+
+    @Param({"10", "100"})
+    public int pageSize;
+
+    @Benchmark
+    public ResponseEntity<byte[]> getAllQuestions(final QuoraState state) throws Exception {
+        return state.questionController.getAllQuestions(state.accessToken, pageSize, null,
+                QuoraState.getRequest("/question/all"));
+    }
+
+    @Benchmark
+    public ResponseEntity<byte[]> getAllQuestionsUncached(final QuoraState state) throws Exception {
+        state.questionPageCache.invalidateAll();
+        return state.questionController.getAllQuestions(state.accessToken, pageSize, null,
+                QuoraState.getRequest("/question/all"));
+    }
+
+    @Benchmark
+    public ResponseEntity<List<AnswerDetailsResponse>> getAllAnswersToQuestion(final QuoraState state) throws Exception {
+        return state.answerController.getAllAnswersToQuestion(state.accessToken, state.questionUuid, null, pageSize, null,
+                QuoraState.getRequest("/answer/all/" + state.questionUuid));
+    }
+}
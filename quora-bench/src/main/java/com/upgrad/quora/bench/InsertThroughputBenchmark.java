@@ -0,0 +1,101 @@
+package com.upgrad.quora.bench;
+
+import com.upgrad.quora.service.dao.AnswerDao;
+import com.upgrad.quora.service.dao.QuestionDao;
+import com.upgrad.quora.service.dao.UserDao;
+import com.upgrad.quora.service.entity.AnswerEntity;
+import com.upgrad.quora.service.entity.QuestionEntity;
+import com.upgrad.quora.service.entity.UserAuthEntity;
+import com.upgrad.quora.service.entity.UserEntity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.ZonedDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Insert throughput of the tables written on the hot paths: user_auth on every sign in and answer on every
+ * answer creation, one row per transaction through the services and many rows per transaction through the DAOs,
+ * which is where JDBC batching of the inserts pays off.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InsertThroughputBenchmark {
+
+    private static final int ROWS_PER_TRANSACTION = 100;
+
+    private UserDao userDao;
+    private AnswerDao answerDao;
+    private TransactionTemplate transactionTemplate;
+
+    private UserEntity user;
+    private QuestionEntity question;
+
+    @Setup
+    public void setUp(final QuoraState state) {
+        userDao = state.context.getBean(UserDao.class);
+        answerDao = state.context.getBean(AnswerDao.class);
+        transactionTemplate = state.context.getBean(TransactionTemplate.class);
+        user = userDao.getUserByUsername(state.userName);
+        question = state.context.getBean(QuestionDao.class).getQuestion(state.questionUuid);
+    }
+
+    @Benchmark
+    public UserAuthEntity signIn(final QuoraState state) throws Exception {
+        return state.userBusinessService.userAuthentication(state.userName, QuoraState.PASSWORD);
+    }
+
+    @Benchmark
+    public AnswerEntity createAnswer(final QuoraState state) throws Exception {
+        return state.answerBusinessService.createAnswer(QuoraState.newAnswer(0), state.questionUuid, state.accessToken);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS_PER_TRANSACTION)
+    public void createSessionsInOneTransaction() {
+        transactionTemplate.execute(status -> {
+            final ZonedDateTime now = ZonedDateTime.now();
+            for (int i = 0; i < ROWS_PER_TRANSACTION; i++) {
+                UserAuthEntity userAuthEntity = new UserAuthEntity();
+                userAuthEntity.setUuid(UUID.randomUUID().toString());
+                userAuthEntity.setUser(user);
+                userAuthEntity.setAccessToken(UUID.randomUUID().toString());
+                userAuthEntity.setLoginAt(now);
+                userAuthEntity.setExpiresAt(now.plusHours(10));
+                userDao.createToken(userAuthEntity);
+            }
+            return null;
+        });
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS_PER_TRANSACTION)
+    public void createAnswersInOneTransaction() {
+        transactionTemplate.execute(status -> {
+            final ZonedDateTime now = ZonedDateTime.now();
+            for (int i = 0; i < ROWS_PER_TRANSACTION; i++) {
+                AnswerEntity answerEntity = QuoraState.newAnswer(i);
+                answerEntity.setUser(user);
+                answerEntity.setQuestion(question);
+                answerEntity.setDate(now);
+                answerDao.createAnswer(answerEntity);
+            }
+            return null;
+        });
+    }
+}
@@ -0,0 +1,47 @@
+package com.upgrad.quora.bench;
+
+import com.upgrad.quora.service.business.PasswordCryptographyProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PBKDF2 hashing done at sign up (salt + hash) and at sign in (hash with the stored salt).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PasswordCryptographyBenchmark {
+
+    private PasswordCryptographyProvider cryptographyProvider;
+
+    private String salt;
+
+    @Setup
+    public void setUp() {
+        cryptographyProvider = new PasswordCryptographyProvider();
+        salt = cryptographyProvider.encrypt("bench_password")[0];
+    }
+
+    @Benchmark
+    public String[] encryptWithNewSalt() {
+        return cryptographyProvider.encrypt("bench_password");
+    }
+
+    @Benchmark
+    public String encryptWithSalt() {
+        return PasswordCryptographyProvider.encrypt("bench_password", salt);
+    }
+}
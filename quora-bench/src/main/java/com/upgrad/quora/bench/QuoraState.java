@@ -0,0 +1,102 @@
+package com.upgrad.quora.bench;
+
+import com.upgrad.quora.api.controller.AnswerController;
+import com.upgrad.quora.api.controller.QuestionController;
+import com.upgrad.quora.service.business.AnswerBusinessService;
+import com.upgrad.quora.service.business.AuthorizationService;
+import com.upgrad.quora.service.business.QuestionService;
+import com.upgrad.quora.service.business.UserBusinessService;
+import com.upgrad.quora.service.cache.QuestionPageCache;
+import com.upgrad.quora.service.entity.AnswerEntity;
+import com.upgrad.quora.service.entity.QuestionEntity;
+import com.upgrad.quora.service.entity.UserEntity;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.util.UUID;
+
+/**
+ * Benchmark state holding the application context and the data seeded into the in-memory database:
+ * one signed in user, a number of questions and a number of answers to one of the questions.
+ */
+@State(Scope.Benchmark)
+public class QuoraState {
+
+    static final int QUESTIONS = 500;
+    static final int ANSWERS = 500;
+    static final String PASSWORD = "bench_password";
+
+    public ConfigurableApplicationContext context;
+    public UserBusinessService userBusinessService;
+    public AuthorizationService authorizationService;
+    public QuestionService questionService;
+    public AnswerBusinessService answerBusinessService;
+    public QuestionController questionController;
+    public AnswerController answerController;
+    public QuestionPageCache questionPageCache;
+
+    public String userName;
+    public String accessToken;
+    public String questionUuid;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        context = BenchApplication.start();
+        userBusinessService = context.getBean(UserBusinessService.class);
+        authorizationService = context.getBean(AuthorizationService.class);
+        questionService = context.getBean(QuestionService.class);
+        answerBusinessService = context.getBean(AnswerBusinessService.class);
+        questionController = context.getBean(QuestionController.class);
+        answerController = context.getBean(AnswerController.class);
+        questionPageCache = context.getBean(QuestionPageCache.class);
+
+        userName = "bench_" + UUID.randomUUID().toString().substring(0, 8);
+        userBusinessService.createUser(newUser(userName));
+        accessToken = userBusinessService.userAuthentication(userName, PASSWORD).getAccessToken();
+
+        for (int i = 0; i < QUESTIONS; i++) {
+            QuestionEntity question = new QuestionEntity();
+            question.setUuid(UUID.randomUUID().toString());
+            question.setContent("How do I benchmark question number " + i + "?");
+            questionUuid = questionService.createQuestion(question, accessToken).getUuid();
+        }
+        for (int i = 0; i < ANSWERS; i++) {
+            answerBusinessService.createAnswer(newAnswer(i), questionUuid, accessToken);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /* A GET request without conditional headers, for the controllers which answer conditional GETs */
+    public static ServletWebRequest getRequest(final String path) {
+        return new ServletWebRequest(new MockHttpServletRequest("GET", path));
+    }
+
+    public static UserEntity newUser(final String userName) {
+        UserEntity user = new UserEntity();
+        user.setUuid(UUID.randomUUID().toString());
+        user.setFirstName("bench");
+        user.setLastName("user");
+        user.setUsername(userName);
+        user.setEmail(userName + "@quora.io");
+        user.setPassword(PASSWORD);
+        user.setRole("nonadmin");
+        return user;
+    }
+
+    public static AnswerEntity newAnswer(final int i) {
+        AnswerEntity answer = new AnswerEntity();
+        answer.setUuid(UUID.randomUUID().toString());
+        answer.setAnswer("Benchmark answer number " + i);
+        return answer;
+    }
+}
@@ -0,0 +1,29 @@
+--Reports how the lookups issued by the DAOs are served by the database.
+
+--1. Number of sequential scans and index scans per table since the statistics were last reset.
+--   A growing seq_scan count on a large table points to a lookup which is not served by an index.
+SELECT relname, seq_scan, seq_tup_read, idx_scan, n_live_tup FROM pg_stat_user_tables WHERE relname IN ('users', 'user_auth', 'question', 'answer') ORDER BY relname;
+
+--2. Plans of the DAO lookups with sequential scans disabled.
+--   Any "Seq Scan" left in the plans below means that no index can serve the lookup.
+SET enable_seqscan = off;
+--userByUuid
+EXPLAIN SELECT * FROM USERS WHERE uuid = 'database_uuid';
+--userAuthTokenByAccessToken
+EXPLAIN SELECT * FROM USER_AUTH WHERE access_token = 'database_accesstoken';
+--getQuestionByQuestionId
+EXPLAIN SELECT * FROM QUESTION WHERE uuid = 'database_question_uuid';
+--getAnswerByUuid
+EXPLAIN SELECT * FROM ANSWER WHERE uuid = 'database_answer_uuid';
+--getAllQuestionsByUser
+EXPLAIN SELECT * FROM QUESTION WHERE user_id = 1026;
+--getNewestAnswersPageByQuestionUuid
+EXPLAIN SELECT q.content, a.id, a.uuid, a.ans FROM QUESTION q LEFT JOIN ANSWER a ON a.question_id = q.id AND a.id < 2147483647 WHERE q.uuid = 'database_question_uuid' ORDER BY a.id DESC LIMIT 101;
+--expiredSessionIds
+EXPLAIN SELECT id FROM USER_AUTH WHERE expires_at < now() OR logout_at < now() LIMIT 500;
+--searchQuestions
+EXPLAIN SELECT id FROM QUESTION WHERE content_tsv @@ to_tsquery('english', 'database | question');
+EXPLAIN SELECT question_id FROM ANSWER WHERE ans_tsv @@ to_tsquery('english', 'database | question');
+--getRecentAnswersBefore
+EXPLAIN SELECT a.id, a.date, q.id, q.uuid, q.content FROM ANSWER a JOIN QUESTION q ON q.id = a.question_id WHERE a.date >= now() - interval '7 days' AND (a.date < now() OR (a.date = now() AND a.id < 0)) ORDER BY a.date DESC, a.id DESC LIMIT 1000;
+SET enable_seqscan = on;
@@ -0,0 +1,5 @@
+--Unique indexes on the uuid columns which every DAO uses to look up users, questions and answers
+--(named queries userByUuid, getQuestionByQuestionId and getAnswerByUuid)
+CREATE UNIQUE INDEX IF NOT EXISTS USERS_UUID_UK ON USERS(uuid);
+CREATE UNIQUE INDEX IF NOT EXISTS QUESTION_UUID_UK ON QUESTION(uuid);
+CREATE UNIQUE INDEX IF NOT EXISTS ANSWER_UUID_UK ON ANSWER(uuid);
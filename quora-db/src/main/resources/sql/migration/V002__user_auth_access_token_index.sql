@@ -0,0 +1,6 @@
+--Unique index on USER_AUTH.access_token which is looked up on every authenticated request
+--(named query userAuthTokenByAccessToken). A btree index is used as hash indexes are not crash safe before PostgreSQL 10.
+CREATE UNIQUE INDEX IF NOT EXISTS USER_AUTH_ACCESS_TOKEN_UK ON USER_AUTH(access_token);
+
+--Index on USER_AUTH.user_id, used by the ON DELETE CASCADE from USERS
+CREATE INDEX IF NOT EXISTS USER_AUTH_USER_ID_IDX ON USER_AUTH(user_id);
@@ -0,0 +1,7 @@
+--Indexes for the listings of questions per user and answers per question.
+--The id column is part of the index so that the keyset pagination on id is served in index order without a sort.
+CREATE INDEX IF NOT EXISTS QUESTION_USER_ID_IDX ON QUESTION(user_id, id);
+CREATE INDEX IF NOT EXISTS ANSWER_QUESTION_ID_IDX ON ANSWER(question_id, id);
+
+--Index on ANSWER.user_id, used by the ON DELETE CASCADE from USERS
+CREATE INDEX IF NOT EXISTS ANSWER_USER_ID_IDX ON ANSWER(user_id);
@@ -0,0 +1,4 @@
+--Indexes for the purge of expired and signed out sessions from USER_AUTH, see UserAuthPurgeJob.
+--Signed out sessions are a minority of the rows, so only those rows are kept in the LOGOUT_AT index.
+CREATE INDEX IF NOT EXISTS USER_AUTH_EXPIRES_AT_IDX ON USER_AUTH(expires_at);
+CREATE INDEX IF NOT EXISTS USER_AUTH_LOGOUT_AT_IDX ON USER_AUTH(logout_at) WHERE logout_at IS NOT NULL;
@@ -0,0 +1,3 @@
+--QuestionEntity takes its ids from QUESTION_ID_SEQ in blocks of 50 (pooled optimizer), so that many questions
+--can be inserted in a single JDBC batch. The increment of the sequence has to match the allocation size.
+ALTER SEQUENCE QUESTION_ID_SEQ INCREMENT BY 50;
@@ -0,0 +1,5 @@
+--UserEntity, UserAuthEntity and AnswerEntity take their ids from the sequences of their tables in blocks of 50
+--(pooled optimizer), like QuestionEntity (see V005). The increment of the sequences has to match the allocation size.
+ALTER SEQUENCE USERS_ID_SEQ INCREMENT BY 50;
+ALTER SEQUENCE USER_AUTH_ID_SEQ INCREMENT BY 50;
+ALTER SEQUENCE ANSWER_ID_SEQ INCREMENT BY 50;
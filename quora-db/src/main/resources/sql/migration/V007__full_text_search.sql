@@ -0,0 +1,9 @@
+--Full text search over the question and answer contents, used by QuestionSearchDao when quora.search.mode is postgres.
+--The tsvector columns are generated from the contents, so every insert and update keeps them current without any
+--change to the application, and every API node searches the same data. Generated columns need PostgreSQL 12 or later.
+ALTER TABLE QUESTION ADD COLUMN IF NOT EXISTS content_tsv TSVECTOR GENERATED ALWAYS AS (to_tsvector('english', content)) STORED;
+ALTER TABLE ANSWER ADD COLUMN IF NOT EXISTS ans_tsv TSVECTOR GENERATED ALWAYS AS (to_tsvector('english', ans)) STORED;
+
+--GIN indexes serving the @@ matches of the search
+CREATE INDEX IF NOT EXISTS QUESTION_CONTENT_TSV_IDX ON QUESTION USING GIN(content_tsv);
+CREATE INDEX IF NOT EXISTS ANSWER_ANS_TSV_IDX ON ANSWER USING GIN(ans_tsv);
@@ -0,0 +1,11 @@
+--Number of answers and time of the latest answer per question, kept on QUESTION so that the question listings show
+--them without counting the answers of every question. The application maintains both columns with every answer it
+--creates or deletes. Re-running this migration recounts them from ANSWER.
+ALTER TABLE QUESTION ADD COLUMN IF NOT EXISTS answer_count INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE QUESTION ADD COLUMN IF NOT EXISTS last_answer_at TIMESTAMP;
+
+UPDATE QUESTION q SET answer_count = coalesce(s.answer_count, 0), last_answer_at = s.last_answer_at
+FROM QUESTION q2 LEFT JOIN (SELECT question_id, count(*) AS answer_count, max(date) AS last_answer_at FROM ANSWER GROUP BY question_id) s
+    ON s.question_id = q2.id
+WHERE q2.id = q.id
+  AND (q.answer_count <> coalesce(s.answer_count, 0) OR q.last_answer_at IS DISTINCT FROM s.last_answer_at);
@@ -0,0 +1,3 @@
+--Index on ANSWER.date, used by the recompute of the hot questions ranking which reads the answers of the last days,
+--newest first, in keyset pages on (date, id). See HotQuestionRecomputeJob.
+CREATE INDEX IF NOT EXISTS ANSWER_DATE_ID_IDX ON ANSWER(date, id);
@@ -0,0 +1,6 @@
+--Version of every user, question and answer row, incremented by the application with every update of the row.
+--The profile and answer listings derive their ETag from it, so that clients can revalidate them with If-None-Match.
+--Existing rows start at version 0.
+ALTER TABLE USERS ADD COLUMN IF NOT EXISTS version INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE QUESTION ADD COLUMN IF NOT EXISTS version INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE ANSWER ADD COLUMN IF NOT EXISTS version INTEGER NOT NULL DEFAULT 0;
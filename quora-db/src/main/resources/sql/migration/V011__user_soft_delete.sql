@@ -0,0 +1,5 @@
+--Time at which an admin deleted the user, null for an active user.
+--The request only marks the user as deleted, UserPurgeJob deletes its answers, questions and sessions and finally the
+--row itself in bounded batches. Deleted users are a small minority, so only those rows are kept in the index.
+ALTER TABLE USERS ADD COLUMN IF NOT EXISTS deleted_at TIMESTAMP;
+CREATE INDEX IF NOT EXISTS USERS_DELETED_AT_IDX ON USERS(deleted_at) WHERE deleted_at IS NOT NULL;
@@ -1,15 +1,44 @@
 package com.upgrad.quora.service;
 
 
+import com.upgrad.quora.service.business.JwtTokenProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.security.SecureRandom;
+import java.util.Base64;
 
 /**
  * Enabling the component scan and entity scan of classes in the below mentioned "com.upgrad.quora.service" and "com.upgrad.quora.service.entity" packages respectively.
+ * Scheduling is enabled for the background jobs in "com.upgrad.quora.service.job".
  */
 @Configuration
 @ComponentScan("com.upgrad.quora.service")
 @EntityScan("com.upgrad.quora.service.entity")
+@EnableScheduling
 public class ServiceConfiguration {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ServiceConfiguration.class);
+
+    /**
+     * JwtTokenProvider signing the access tokens with the server secret "quora.auth.jwt.secret".
+     * Without a configured secret a random one is generated, tokens issued by this instance then cannot be verified by
+     * any other instance or after a restart, and are verified against the database instead.
+     */
+    @Bean
+    public JwtTokenProvider jwtTokenProvider(@Value("${quora.auth.jwt.secret:}") final String secret) {
+        if (!secret.isEmpty()) {
+            return new JwtTokenProvider(secret);
+        }
+        LOG.warn("quora.auth.jwt.secret is not set, signing access tokens with a random secret");
+        final byte[] randomSecret = new byte[64];
+        new SecureRandom().nextBytes(randomSecret);
+        return new JwtTokenProvider(Base64.getEncoder().encodeToString(randomSecret));
+    }
 }
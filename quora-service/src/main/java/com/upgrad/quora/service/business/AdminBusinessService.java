@@ -1,19 +1,28 @@
 /* Created by Ankit as part of developing Service classes for implementing given functionalities
  * This service has single method to handle business logic of deletion of a user.
  * 1. deleteUser() method would facilitate the deletion of a user in database
+ * The user is only marked as deleted by the request, which revokes its sessions, UserPurgeJob deletes its answers,
+ * questions, sessions and finally the row itself in the background.
  */
 package com.upgrad.quora.service.business;
 
+import com.upgrad.quora.service.cache.QuestionCache;
+import com.upgrad.quora.service.cache.QuestionPageCache;
+import com.upgrad.quora.service.cache.UserCache;
 import com.upgrad.quora.service.dao.UserDao;
 import com.upgrad.quora.service.entity.UserAuthEntity;
 import com.upgrad.quora.service.entity.UserEntity;
 import com.upgrad.quora.service.exception.AuthorizationFailedException;
 import com.upgrad.quora.service.exception.UserNotFoundException;
+import com.upgrad.quora.service.ranking.HotQuestionRanking;
+import com.upgrad.quora.service.search.QuestionSearchIndex;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.ZonedDateTime;
+
 /* @Service Annotation would help the container to recognize AdminBusinessService as a service class */
 @Service
 public class AdminBusinessService {
@@ -25,9 +34,27 @@ public class AdminBusinessService {
     @Autowired
     private AuthorizationService authorizationService;
 
+    @Autowired
+    private UserCache userCache;
+
+    @Autowired
+    private QuestionCache questionCache;
+
+    @Autowired
+    private QuestionPageCache questionPageCache;
+
+    @Autowired
+    private QuestionSearchIndex questionSearchIndex;
+
+    @Autowired
+    private HotQuestionRanking hotQuestionRanking;
+
     /* deleteUser() method would facilitate the deletion of a user in database
      * This method would take two inputs : the authorization string for user authorization
      * and a userUuid string of which user has to be deleted
+     * The user is marked as deleted, so that it is not found any more, cannot sign in and its sessions are no longer
+     * accepted. Its answers, questions, sessions and the row itself are deleted in bounded batches by UserPurgeJob,
+     * rather than by a cascade in this transaction which would lock every row of a prolific user at once.
      * It would return the deleted object data back to the calling controller.
      */
     @Transactional(propagation = Propagation.REQUIRED)
@@ -58,8 +85,26 @@ public class AdminBusinessService {
             throw new UserNotFoundException("USR-001", "User with entered uuid to be deleted does not exist");
         }
 
+        /* Mark the user as deleted, unless a concurrent request did */
+        if (userDao.markUserDeleted(userToBeDeleted, ZonedDateTime.now()) == 0) {
+            throw new UserNotFoundException("USR-001", "User with entered uuid to be deleted does not exist");
+        }
+
+        /* Sessions of the deleted user must not be served from the access token cache any more */
+        authorizationService.invalidateUserSessions(userToBeDeleted);
+
+        /* The user and its questions must not be served from the caches any more, and the cached pages of questions
+         * still list them, whereas every query leaves the questions and answers of deleted users out */
+        userCache.invalidate(userToBeDeleted.getUuid());
+        questionCache.invalidateUser(userToBeDeleted.getUuid());
+        questionPageCache.invalidateAll();
+
+        /* The questions and answers of the deleted user are about to be deleted and must not be found any more */
+        questionSearchIndex.removeUser(userToBeDeleted.getUuid());
+        hotQuestionRanking.userRemoved(userToBeDeleted.getUuid());
+
         /* Return details of the deleted user entity to the calling controller*/
-        return userDao.deleteUser(userToBeDeleted);
+        return userToBeDeleted;
     }
 
 }
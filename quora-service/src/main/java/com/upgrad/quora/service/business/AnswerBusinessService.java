@@ -4,25 +4,41 @@
  * 1. createAnswer() method would facilitate the creation of a answer in database
  * 2. editAnswerContent() method would facilitate the update a given answer
  * 3. deleteAnswer() method would facilitate the deletion of a given answer.
- * 4. getAllAnswersToQuestion() method would furnish the details of all the answers per question
+ * 4. getAllAnswersToQuestion() method would furnish the details of one page of the answers per question
+ * Every change to the answers is applied to the QuestionSearchIndex and the HotQuestionRanking once the transaction commits.
+ * The answer count and the date of the latest answer of the question are updated in the same transaction as the answer.
  */
 
 package com.upgrad.quora.service.business;
 
+import com.upgrad.quora.service.cache.QuestionCache;
+import com.upgrad.quora.service.cache.QuestionPageCache;
+import com.upgrad.quora.service.common.EntityTag;
+import com.upgrad.quora.service.common.KeysetPage;
+import com.upgrad.quora.service.common.PageCursor;
+import com.upgrad.quora.service.common.QuestionAnswersPage;
 import com.upgrad.quora.service.dao.AnswerDao;
 import com.upgrad.quora.service.dao.QuestionDao;
 import com.upgrad.quora.service.entity.AnswerEntity;
 import com.upgrad.quora.service.entity.QuestionEntity;
 import com.upgrad.quora.service.entity.UserAuthEntity;
+import com.upgrad.quora.service.entity.UserEntity;
 import com.upgrad.quora.service.exception.AnswerNotFoundException;
 import com.upgrad.quora.service.exception.AuthorizationFailedException;
 import com.upgrad.quora.service.exception.InvalidQuestionException;
+import com.upgrad.quora.service.exception.InvalidRequestException;
+import com.upgrad.quora.service.exception.PreconditionFailedException;
+import com.upgrad.quora.service.ranking.HotQuestionRanking;
+import com.upgrad.quora.service.search.QuestionSearchIndex;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Timestamp;
+import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
 @Service
@@ -35,9 +51,26 @@ public class AnswerBusinessService {
     @Autowired
     private AnswerDao answerDao;
 
+    /* Questions being answered are served from this cache when they have been looked up before */
+    @Autowired
+    private QuestionCache questionCache;
+
+    /* Listings show the answer count of every question, see QuestionPageCache */
+    @Autowired
+    private QuestionPageCache questionPageCache;
+
     @Autowired
     private AuthorizationService authorizationService;
 
+    @Autowired
+    private PageSizePolicy pageSizePolicy;
+
+    @Autowired
+    private QuestionSearchIndex questionSearchIndex;
+
+    @Autowired
+    private HotQuestionRanking hotQuestionRanking;
+
     /* createAnswer() method would facilitate the creation of a answer for given question in database
      * This method would take three inputs : the authorization string for user authorization
      * and a answerEntity object which holds the details of a answer to be persisted
@@ -49,9 +82,16 @@ public class AnswerBusinessService {
                                      final String authorization)
             throws AuthorizationFailedException, InvalidQuestionException {
         /*
-         * Get the question entity from given question id or throw exception if does not exist
+         * Get the question entity from given question id, from the cache or else from the database,
+         * or throw exception if does not exist
          */
-        QuestionEntity questionEntity = questionDao.getQuestion(questionId);
+        QuestionEntity questionEntity = questionCache.get(questionId);
+        if (questionEntity == null) {
+            questionEntity = questionDao.getQuestion(questionId);
+            if (questionEntity != null) {
+                questionCache.put(questionEntity);
+            }
+        }
 
         if (questionEntity == null) {
             throw new InvalidQuestionException("QUES-001", "The question entered is invalid");
@@ -64,26 +104,44 @@ public class AnswerBusinessService {
         UserAuthEntity userAuthToken = authorizationService.checkAuthorization(authorization,
                 "User is signed out.Sign in first to post an answer");
 
+        /* Count the answer to the question first, which tells whether the question, possibly served from the
+         * cache, still exists. The answer must not be persisted otherwise.
+         */
+        final ZonedDateTime answeredAt = ZonedDateTime.now();
+        if (questionDao.addAnswer(questionEntity, answeredAt) == 0) {
+            questionCache.invalidate(questionId);
+            throw new InvalidQuestionException("QUES-001", "The question entered is invalid");
+        }
+
         /* Update the details as user, question and datetime on the answer entity and persist it to
          * DB with the given details
          */
         answerEntity.setUser(userAuthToken.getUser());
-        answerEntity.setDate(ZonedDateTime.now());
+        answerEntity.setDate(answeredAt);
         answerEntity.setQuestion(questionEntity);
 
-        return answerDao.createAnswer(answerEntity);
+        AnswerEntity createdAnswer = answerDao.createAnswer(answerEntity);
+        questionPageCache.invalidateAll();
+        questionSearchIndex.indexAnswer(createdAnswer);
+        hotQuestionRanking.answerAdded(createdAnswer);
+        return createdAnswer;
     }
 
     /* editAnswerContent() method would facilitate the update of a answer in database
-     * This method would take three inputs : the authorization string for user authorization
+     * This method would take four inputs : the authorization string for user authorization
      * and a answerContent string which holds updated answer
      * and a answerId string for which answer has to be updated
-     * It would return the persisted object back to the calling controller.
+     * and the If-Match header (null if absent) which, if given, must hold the ETag of the version of the answer.
+     * The answer is updated in a single statement provided that the logged in user owns it and that it is at one of
+     * the versions of the If-Match header. The same statement reads the answer, so a refused update is told apart:
+     * ANS-001 if the answer doesn't exist, ATHR-003 if it belongs to another user, EDIT-001 if the version doesn't
+     * match, without any other round trip.
+     * It would return the updated answer, holding its new version, back to the calling controller.
      */
     @Transactional(propagation = Propagation.REQUIRED)
     public AnswerEntity editAnswerContent(final String answerId, final String answerContent,
-                                          final String authorization)
-            throws AuthorizationFailedException, AnswerNotFoundException {
+                                          final String authorization, final String ifMatch)
+            throws AuthorizationFailedException, AnswerNotFoundException, PreconditionFailedException {
 
         /* Check if the authorization/accessToken provided is valid or not. It will check the below:
          *  1.1. User has provided valid access token
@@ -91,32 +149,40 @@ public class AnswerBusinessService {
          */
         UserAuthEntity userAuthToken = authorizationService.checkAuthorization(authorization,
                 "User is signed out.Sign in first to edit an answer");
+        final UserEntity loggedInUser = userAuthToken.getUser();
 
-        /* Check if the given answer is valid. Throw exception if the answer doesn't exist */
-        AnswerEntity answerToBeUpdated = answerDao.getAnswer(answerId);
-        if (answerToBeUpdated == null) {
+        /* Update the answer if it is owned by the logged in user and it is at one of the versions of the If-Match header */
+        final List<Integer> versions = EntityTag.versions(ifMatch);
+        Object[] row = answerDao.updateAnswer(answerId, loggedInUser.getId(), answerContent, versions);
+        if (row == null) {
             throw new AnswerNotFoundException("ANS-001", "Entered answer uuid does not exist");
         }
-
-        /* Check if the logged-in user and the owner of the answer is same */
-        final String answerOwner = answerToBeUpdated.getUser().getUuid();
-        final String loggedInUser = userAuthToken.getUser().getUuid();
-        /* Merge the changes to the answer if the owner and logged in user are the same
-         * Else, throw exception that only owner of the answer can edit
-         */
-        if (answerOwner.equals(loggedInUser)) {
-            answerToBeUpdated.setAnswer(answerContent);
-            /* Return the updated answerEntity object back to the calling controller */
-            return answerDao.updateAnswer(answerToBeUpdated);
-        } else {
+        if (((Number) row[1]).intValue() != loggedInUser.getId()) {
             throw new AuthorizationFailedException("ATHR-003",
                     "Only the answer owner can edit the answer");
         }
+        if (row[2] == null) {
+            if (versions != null) {
+                throw new PreconditionFailedException("EDIT-001", "The answer has been modified since it was read");
+            }
+            /* The answer has been deleted since the statement began */
+            throw new AnswerNotFoundException("ANS-001", "Entered answer uuid does not exist");
+        }
+
+        AnswerEntity updatedAnswer = toAnswerEntity(row, answerId);
+        updatedAnswer.setUser(loggedInUser);
+        updatedAnswer.setAnswer(answerContent);
+        updatedAnswer.setVersion(((Number) row[2]).intValue());
+        questionSearchIndex.indexAnswer(updatedAnswer);
+        /* Return the updated answerEntity object back to the calling controller */
+        return updatedAnswer;
     }
 
     /* deleteAnswer() method would facilitate the deletion of a answer in database
      * This method would take two inputs : the authorization string for user authorization
      * and a answerId string of which answer data has to be deleted
+     * The answer is deleted in a single statement which only deletes the answer of another user for an admin, and
+     * which reads the answer to tell ANS-001 from ATHR-003 when nothing was deleted.
      * It would return the deleted object data back to the calling controller.
      */
     @Transactional(propagation = Propagation.REQUIRED)
@@ -129,45 +195,71 @@ public class AnswerBusinessService {
          */
         UserAuthEntity userAuthToken = authorizationService.checkAuthorization(authorization,
                 "User is signed out.Sign in first to delete an answer");
+        final UserEntity loggedInUser = userAuthToken.getUser();
+        final boolean admin = loggedInUser.getRole().equals("admin");
 
-        /* Check if the given answer is valid. Throw exception if the answer doesn't exist */
-        AnswerEntity answerToBeDeleted = answerDao.getAnswer(answerId);
-        if (answerToBeDeleted == null) {
-            throw new AnswerNotFoundException("ANS-001", "Entered answer uuid does not exist");
-        }
-
-        /* Check if the logged-in user and the owner of the answer is same or admin */
-        final String answerOwner = answerToBeDeleted.getUser().getUuid();
-        final String loggedInUser = userAuthToken.getUser().getUuid();
         /* Delete the answer if the owner and logged in user are the same or logged in user is admin
          * Else, throw exception that only owner of the answer or admin can delete
          */
-        if (answerOwner.equals(loggedInUser) || userAuthToken.getUser().getRole().equals("admin")) {
-            /* Return the deleted answerEntity object back to the calling controller */
-            return answerDao.deleteAnswer(answerToBeDeleted);
-        } else {
+        Object[] row = answerDao.deleteAnswer(answerId, admin ? null : loggedInUser.getId());
+        if (row == null) {
+            throw new AnswerNotFoundException("ANS-001", "Entered answer uuid does not exist");
+        }
+        if (row[2] == null) {
+            if (admin || ((Number) row[1]).intValue() == loggedInUser.getId()) {
+                /* The answer has been deleted since the statement began */
+                throw new AnswerNotFoundException("ANS-001", "Entered answer uuid does not exist");
+            }
             throw new AuthorizationFailedException("ATHR-003",
                     "Only the answer owner or admin can delete the answer");
         }
+
+        AnswerEntity deletedAnswer = toAnswerEntity(row, answerId);
+        questionSearchIndex.removeAnswer(deletedAnswer);
+        hotQuestionRanking.answerRemoved(deletedAnswer);
+        questionDao.removeAnswer(deletedAnswer);
+        questionPageCache.invalidateAll();
+        /* Return the deleted answerEntity object back to the calling controller */
+        return deletedAnswer;
     }
 
-    /* getAllAnswersToQuestion() method would facilitate the fetch all the answers for a question in database
-     * This method would take two inputs : the authorization string for user authorization
-     * and a questionId string of which answers have to be fetched
-     * It would return the list of answer entity objects back to the calling controller.
+    /* Build a detached answer from a row of AnswerDao.updateAnswer() or AnswerDao.deleteAnswer(), along with the id
+     * of its owner, its question and the uuid of the owner of the question, which the search index and the ranking need
      */
-    public List<AnswerEntity> getAllAnswersToQuestion(final String authorization, final String questionId)
-            throws AuthorizationFailedException, InvalidQuestionException {
+    private static AnswerEntity toAnswerEntity(final Object[] row, final String answerId) {
+        UserEntity owner = new UserEntity();
+        owner.setId(((Number) row[1]).intValue());
 
-        /*
-         * Get the question entity from given question id or throw exception if does not exist
-         */
-        QuestionEntity questionEntity = questionDao.getQuestion(questionId);
+        UserEntity questionOwner = new UserEntity();
+        questionOwner.setUuid((String) row[7]);
 
-        if (questionEntity == null) {
-            throw new InvalidQuestionException("QUES-001",
-                    "The question with entered uuid whose details are to be seen does not exist");
-        }
+        QuestionEntity question = new QuestionEntity();
+        question.setId(((Number) row[4]).intValue());
+        question.setUuid((String) row[5]);
+        question.setContent((String) row[6]);
+        question.setUser(questionOwner);
+
+        AnswerEntity answer = new AnswerEntity();
+        answer.setId(((Number) row[0]).intValue());
+        answer.setUuid(answerId);
+        answer.setDate(ZonedDateTime.ofInstant(((Timestamp) row[3]).toInstant(), ZoneId.systemDefault()));
+        answer.setUser(owner);
+        answer.setQuestion(question);
+        return answer;
+    }
+
+    /* getAllAnswersToQuestion() method would facilitate the fetch of one page of the answers for a question in database
+     * This method would take the authorization string for user authorization, a questionId string of which
+     * answers have to be fetched, the sort order (newest or oldest, newest by default), the page size and
+     * the cursor returned for the previous page (null for the first page).
+     * The question and the answers of the page are resolved in a single query.
+     * It would return the question content and version along with the page of answer entity objects, each with its
+     * version, back to the calling controller.
+     */
+    @Transactional(readOnly = true)
+    public QuestionAnswersPage getAllAnswersToQuestion(final String authorization, final String questionId,
+                                                       final String sort, final String after, final Integer limit)
+            throws AuthorizationFailedException, InvalidQuestionException, InvalidRequestException {
 
         /* Check if the authorization/accessToken provided is valid or not. It will check the below:
          *  1.1. User has provided valid access token
@@ -176,7 +268,42 @@ public class AnswerBusinessService {
         UserAuthEntity userAuthToken = authorizationService.checkAuthorization(authorization,
                 "User is signed out.Sign in first to get the answers");
 
-        /* Get the list of all the answers and return the same to the calling controller */
-        return answerDao.getAllAnswersToQuestion(questionId);
+        /* Validate the page parameters before they reach the database */
+        final boolean newestFirst;
+        if (sort == null || sort.equals("newest")) {
+            newestFirst = true;
+        } else if (sort.equals("oldest")) {
+            newestFirst = false;
+        } else {
+            throw new InvalidRequestException("REQ-003", "Answers can only be sorted by newest or oldest");
+        }
+        final int pageSize = pageSizePolicy.resolve(limit);
+        final Integer afterId = after == null ? null : PageCursor.decodeId(after);
+
+        /* Get the question and the answers of the page plus one more row, which only tells whether a next page exists.
+         * No row at all means that the question doesn't exist.
+         */
+        List<Object[]> rows = answerDao.getAnswersPageByQuestion(questionId, newestFirst, afterId, pageSize + 1);
+        if (rows.isEmpty()) {
+            throw new InvalidQuestionException("QUES-001",
+                    "The question with entered uuid whose details are to be seen does not exist");
+        }
+
+        /* Build the answers of the page from the rows, a row without answer id means there are no answers */
+        List<AnswerEntity> answers = new ArrayList<AnswerEntity>(rows.size());
+        for (Object[] row : rows) {
+            if (row[1] != null) {
+                AnswerEntity answer = new AnswerEntity();
+                answer.setId((Integer) row[1]);
+                answer.setUuid((String) row[2]);
+                answer.setAnswer((String) row[3]);
+                answer.setVersion((Integer) row[5]);
+                answers.add(answer);
+            }
+        }
+        final String questionContent = (String) rows.get(0)[0];
+        final Integer questionVersion = (Integer) rows.get(0)[4];
+        return new QuestionAnswersPage(questionContent, questionVersion,
+                KeysetPage.of(answers, pageSize, answer -> PageCursor.encode(answer.getId())));
     }
 }
@@ -4,14 +4,40 @@
  * AuthorizationService is a class which would validate the below conditions:
  * 1. User has provided a valid access token
  * 2. User has not signed out.
+ * 3. The access token has not expired.
+ * Access tokens which have been verified once are kept in the AccessTokenCache, so that the
+ * database is only consulted on a cache miss.
+ * With "quora.auth.jwt.stateless" enabled, tokens signed with the server secret are verified by their
+ * signature, issuer and expiry alone and checked against the AccessTokenRevocationList, without any lookup.
+ * Tokens which fail this verification (e.g. issued before the server secret was configured or revoked) are
+ * still looked up as before, so the database stays the authority on whether a token is valid.
+ * Tokens are always looked up on the primary database, also from read only transactions which read from the replica,
+ * so that a session is found right after sign in and is no longer found right after sign out.
  */
 package com.upgrad.quora.service.business;
 
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.exceptions.JWTDecodeException;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.upgrad.quora.service.cache.AccessTokenCache;
+import com.upgrad.quora.service.cache.AccessTokenRevocationList;
+import com.upgrad.quora.service.common.AfterCommit;
 import com.upgrad.quora.service.dao.UserDao;
 import com.upgrad.quora.service.entity.UserAuthEntity;
+import com.upgrad.quora.service.entity.UserEntity;
 import com.upgrad.quora.service.exception.AuthorizationFailedException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.List;
 
 @Service
 public class AuthorizationService {
@@ -20,12 +46,45 @@ public class AuthorizationService {
     @Autowired
     private UserDao userDao;
 
+    @Autowired
+    private AccessTokenCache accessTokenCache;
+
+    @Autowired
+    private AccessTokenRevocationList revocationList;
+
+    @Autowired
+    private JwtTokenProvider jwtTokenProvider;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${quora.auth.jwt.stateless:false}")
+    private boolean statelessTokens;
+
+    /* Reads of read only transactions go to this replica, see ReadReplicaConfiguration */
+    @Value("${quora.datasource.replica.url:}")
+    private String replicaUrl;
+
     /* checkAuthorization method takes accessToken and an exceptionMessage in case */
     public UserAuthEntity checkAuthorization(final String authorization, final String exceptionMessage)
             throws AuthorizationFailedException {
 
-        /* This will verify if the given authorization token is valid and exists in database */
-        UserAuthEntity userAuthToken = userDao.verifyToken(authorization);
+        /* Accept a token signed with the server secret which has not been revoked without any lookup */
+        UserAuthEntity userAuthToken = verifySignedToken(authorization);
+        if (userAuthToken != null) {
+            return userAuthToken;
+        }
+
+        /* Serve the token from the cache if it has been verified before, otherwise
+         * verify if the given authorization token is valid and exists in database
+         */
+        userAuthToken = accessTokenCache.get(authorization);
+        if (userAuthToken == null) {
+            userAuthToken = verifyTokenOnPrimary(authorization);
+            if (userAuthToken != null) {
+                accessTokenCache.put(userAuthToken);
+            }
+        }
 
         /* If the token doesn't exist, it will throw AuthorizationFailedException
          * saying User has not signed in.
@@ -41,8 +100,98 @@ public class AuthorizationService {
             throw new AuthorizationFailedException("ATHR-002", exceptionMessage);
         }
 
+        /* If the token has expired, the session is over just as if the user had signed out */
+        if (userAuthToken.getExpiresAt() != null && userAuthToken.getExpiresAt().isBefore(ZonedDateTime.now())) {
+            throw new AuthorizationFailedException("ATHR-002", exceptionMessage);
+        }
+
         /* Return the UserAuthToken object if the above validation passes */
         return userAuthToken;
     }
 
+    /* invalidateAccessToken method drops the given token from the cache when the user signs out.
+     * The token is dropped again once the surrounding transaction commits, so that a concurrent
+     * request cannot leave the pre sign out row in the cache.
+     */
+    public void invalidateAccessToken(final String accessToken) {
+        revokeSignedToken(accessToken);
+        accessTokenCache.invalidate(accessToken);
+        AfterCommit.run(() -> accessTokenCache.invalidate(accessToken));
+    }
+
+    /* invalidateUserSessions method drops every cached token of the given user when the user is deleted */
+    public void invalidateUserSessions(final UserEntity userEntity) {
+        final Integer userId = userEntity.getId();
+        revocationList.revokeUser(userEntity.getUuid());
+        accessTokenCache.invalidateUser(userId);
+        AfterCommit.run(() -> accessTokenCache.invalidateUser(userId));
+    }
+
+    /* verifyTokenOnPrimary method looks the given token up on the primary database. Inside a read only transaction,
+     * which reads from the replica, the lookup runs in a transaction of its own, which reads from the primary.
+     */
+    private UserAuthEntity verifyTokenOnPrimary(final String accessToken) {
+        if (replicaUrl.isEmpty() || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return userDao.verifyToken(accessToken);
+        }
+        final TransactionTemplate primary = new TransactionTemplate(transactionManager);
+        primary.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return primary.execute(status -> userDao.verifyToken(accessToken));
+    }
+
+    /* verifySignedToken method returns a detached UserAuthEntity built from the claims of the given token,
+     * or null if stateless verification is disabled or the token is not valid, not signed with the server
+     * secret, carries no user claims or has been revoked.
+     */
+    private UserAuthEntity verifySignedToken(final String accessToken) {
+        if (!statelessTokens) {
+            return null;
+        }
+        final DecodedJWT jwt;
+        try {
+            jwt = jwtTokenProvider.verifyToken(accessToken);
+        } catch (JWTVerificationException e) {
+            return null;
+        }
+
+        final List<String> audience = jwt.getAudience();
+        final Integer userId = jwt.getClaim(JwtTokenProvider.USER_ID_CLAIM).asInt();
+        final String role = jwt.getClaim(JwtTokenProvider.ROLE_CLAIM).asString();
+        final Integer userVersion = jwt.getClaim(JwtTokenProvider.USER_VERSION_CLAIM).asInt();
+        if (audience == null || audience.size() != 1 || userId == null || role == null || userVersion == null
+                || jwt.getIssuedAt() == null || jwt.getExpiresAt() == null) {
+            return null;
+        }
+        final String userUuid = audience.get(0);
+        if (revocationList.isRevoked(jwt.getKeyId(), userUuid, jwt.getIssuedAt().toInstant())) {
+            return null;
+        }
+
+        UserEntity user = new UserEntity();
+        user.setId(userId);
+        user.setUuid(userUuid);
+        user.setRole(role);
+        user.setVersion(userVersion);
+
+        UserAuthEntity userAuthEntity = new UserAuthEntity();
+        userAuthEntity.setAccessToken(accessToken);
+        userAuthEntity.setUser(user);
+        userAuthEntity.setLoginAt(ZonedDateTime.ofInstant(jwt.getIssuedAt().toInstant(), ZoneId.systemDefault()));
+        userAuthEntity.setExpiresAt(ZonedDateTime.ofInstant(jwt.getExpiresAt().toInstant(), ZoneId.systemDefault()));
+        return userAuthEntity;
+    }
+
+    /* revokeSignedToken method puts the key id of the given token on the revocation list until the token expires */
+    private void revokeSignedToken(final String accessToken) {
+        final DecodedJWT jwt;
+        try {
+            jwt = JWT.decode(accessToken);
+        } catch (JWTDecodeException e) {
+            return;
+        }
+        if (jwt.getKeyId() != null && jwt.getExpiresAt() != null) {
+            revocationList.revokeToken(jwt.getKeyId(), jwt.getExpiresAt().toInstant());
+        }
+    }
+
 }
@@ -1,25 +1,36 @@
 package com.upgrad.quora.service.business;
 
 import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTCreator;
+import com.auth0.jwt.JWTVerifier;
 import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.interfaces.DecodedJWT;
 import com.upgrad.quora.service.common.GenericErrorCode;
 import com.upgrad.quora.service.common.UnexpectedException;
 
 import java.time.ZonedDateTime;
-import java.time.temporal.ChronoField;
 import java.util.Date;
 import java.util.UUID;
 
 /**
  * This class is used in the project to provide JWT token after successful authentication
+ * and to verify the signature, issuer and expiry of the tokens it has issued.
  */
 public class JwtTokenProvider {
     private static final String TOKEN_ISSUER = "https://quora.io";
 
+    /* Private claims carrying the user details the authorization path needs */
+    public static final String USER_ID_CLAIM = "uid";
+    public static final String ROLE_CLAIM = "role";
+    public static final String USER_VERSION_CLAIM = "ver";
+
     private final Algorithm algorithm;
 
+    private final JWTVerifier verifier;
+
     /**
-     * A constructor for JwtTokenProvider class which receives user password as an argument to be used in the signature part of JWT access token.
+     * A constructor for JwtTokenProvider class which receives the server secret to be used in the signature part of JWT access token.
      */
     public JwtTokenProvider(final String secret) {
         try {
@@ -27,6 +38,7 @@ public class JwtTokenProvider {
         } catch (IllegalArgumentException e) {
             throw new UnexpectedException(GenericErrorCode.GEN_001);
         }
+        verifier = JWT.require(algorithm).withIssuer(TOKEN_ISSUER).build();
     }
 
 
@@ -41,14 +53,47 @@ public class JwtTokenProvider {
      * @return - generated JWT token
      */
     public String generateToken(final String userUuid, final ZonedDateTime issuedDateTime, final ZonedDateTime expiresDateTime) {
+        return builder(userUuid, issuedDateTime, expiresDateTime).sign(algorithm);
+    }
+
+    /**
+     * @param userUuid        - uuid of the user
+     * @param userId          - id of the user
+     * @param role            - role of the user
+     * @param userVersion     - version of the user row
+     * @param issuedDateTime  - current time
+     * @param expiresDateTime - expiry time of the JWT token
+     * @return - generated JWT token carrying the user id, role and version as private claims
+     */
+    public String generateToken(final String userUuid, final Integer userId, final String role, final Integer userVersion,
+                                final ZonedDateTime issuedDateTime, final ZonedDateTime expiresDateTime) {
+        return builder(userUuid, issuedDateTime, expiresDateTime)
+                .withClaim(USER_ID_CLAIM, userId)
+                .withClaim(ROLE_CLAIM, role)
+                .withClaim(USER_VERSION_CLAIM, userVersion)
+                .sign(algorithm);
+    }
+
+    /**
+     * This method verifies the signature, the issuer and the expiry of the given JWT token.
+     *
+     * @param token - JWT token
+     * @return - decoded JWT token
+     * @throws JWTVerificationException if the token is malformed, not signed with this secret, issued by someone else or expired
+     */
+    public DecodedJWT verifyToken(final String token) throws JWTVerificationException {
+        return verifier.verify(token);
+    }
 
-        final Date issuedAt = new Date(issuedDateTime.getLong(ChronoField.INSTANT_SECONDS));
-        final Date expiresAt = new Date(expiresDateTime.getLong(ChronoField.INSTANT_SECONDS));
+    private static JWTCreator.Builder builder(final String userUuid, final ZonedDateTime issuedDateTime,
+                                              final ZonedDateTime expiresDateTime) {
+        final Date issuedAt = Date.from(issuedDateTime.toInstant());
+        final Date expiresAt = Date.from(expiresDateTime.toInstant());
 
         return JWT.create().withIssuer(TOKEN_ISSUER) //
                 .withKeyId(UUID.randomUUID().toString())
                 .withAudience(userUuid) //
-                .withIssuedAt(issuedAt).withExpiresAt(expiresAt).sign(algorithm);
+                .withIssuedAt(issuedAt).withExpiresAt(expiresAt);
     }
 
 }
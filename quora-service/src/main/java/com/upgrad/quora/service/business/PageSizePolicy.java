@@ -0,0 +1,38 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.exception.InvalidRequestException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * PageSizePolicy resolves the page size requested by the client for the paginated listings.
+ * A missing page size falls back to the default and a page size above the server side maximum is capped.
+ */
+@Component
+public class PageSizePolicy {
+
+    private final int defaultLimit;
+
+    private final int maxLimit;
+
+    public PageSizePolicy(@Value("${quora.pagination.default-limit:100}") final int defaultLimit,
+                          @Value("${quora.pagination.max-limit:500}") final int maxLimit) {
+        this.defaultLimit = defaultLimit;
+        this.maxLimit = maxLimit;
+    }
+
+    /**
+     * @param limit - page size requested by the client, may be null
+     * @return - page size to be used for the query
+     * @throws InvalidRequestException - if the requested page size is not positive
+     */
+    public int resolve(final Integer limit) throws InvalidRequestException {
+        if (limit == null) {
+            return defaultLimit;
+        }
+        if (limit < 1) {
+            throw new InvalidRequestException("REQ-002", "Page size should be a positive number");
+        }
+        return Math.min(limit, maxLimit);
+    }
+}
@@ -21,6 +21,17 @@ public class PasswordCryptographyProvider {
     private static int HASHING_KEY_LENGTH = 64;
     private final static char[] hexArray = "0123456789ABCDEF".toCharArray();
 
+    /* SecretKeyFactory instances are not thread safe and looking one up through the provider list is costly,
+     * so every hashing thread keeps its own instance.
+     */
+    private static final ThreadLocal<SecretKeyFactory> SECRET_KEY_FACTORY = ThreadLocal.withInitial(() -> {
+        try {
+            return SecretKeyFactory.getInstance(SECRET_KEY_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    });
+
     /**
      * This method generates Salt and hashed Password
      *
@@ -66,12 +77,12 @@ public class PasswordCryptographyProvider {
      */
     private static byte[] hashPassword(final char[] password, final byte[] salt) {
         try {
-            SecretKeyFactory skf = SecretKeyFactory.getInstance(SECRET_KEY_ALGORITHM);
+            SecretKeyFactory skf = SECRET_KEY_FACTORY.get();
             PBEKeySpec spec = new PBEKeySpec(password, salt, HASHING_ITERATIONS, HASHING_KEY_LENGTH);
             SecretKey key = skf.generateSecret(spec);
             byte[] res = key.getEncoded();
             return res;
-        } catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
+        } catch (InvalidKeySpecException e) {
             throw new RuntimeException(e);
         }
     }
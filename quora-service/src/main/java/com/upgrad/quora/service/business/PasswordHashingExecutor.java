@@ -0,0 +1,140 @@
+/* PasswordHashingExecutor runs the PBKDF2 hashing of sign up and sign in on a dedicated, bounded pool of threads.
+ * Hashing is CPU bound and takes milliseconds, so a burst of sign ins would otherwise occupy every request thread.
+ * The pool has a fixed number of threads and a bounded queue. A request which finds the queue full, or which waits
+ * longer than the configured timeout for its hash, fails fast with a ServiceUnavailableException instead of piling up.
+ * The queue depth and the busy threads are reported in the gauges quora.password.hashing.queue.depth and
+ * quora.password.hashing.active, the requests turned away in the counters quora.password.hashing.rejected (queue full)
+ * and quora.password.hashing.timed.out, and the time spent hashing, excluding the queue, in the timer
+ * quora.password.hashing.
+ */
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Component
+public class PasswordHashingExecutor implements DisposableBean {
+
+    @Autowired
+    private PasswordCryptographyProvider cryptographyProvider;
+
+    private final ThreadPoolExecutor executor;
+
+    private final long timeoutMillis;
+
+    private final Timer hashTimer;
+
+    private final Counter rejected;
+
+    private final Counter timedOut;
+
+    public PasswordHashingExecutor(@Value("${quora.password-hashing.threads:0}") final int threads,
+                                   @Value("${quora.password-hashing.queue-capacity:64}") final int queueCapacity,
+                                   @Value("${quora.password-hashing.timeout-millis:5000}") final long timeoutMillis,
+                                   final MeterRegistry meterRegistry) {
+        /* 0 threads means one thread per available processor */
+        final int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), new HashingThreadFactory(),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.timeoutMillis = timeoutMillis;
+
+        Gauge.builder("quora.password.hashing.queue.depth", executor, pool -> pool.getQueue().size())
+                .description("Password hashing tasks waiting for a thread")
+                .register(meterRegistry);
+        Gauge.builder("quora.password.hashing.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Threads currently hashing a password")
+                .register(meterRegistry);
+        this.hashTimer = Timer.builder("quora.password.hashing")
+                .description("Time spent hashing a password, excluding the time spent in the queue")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("quora.password.hashing.rejected")
+                .description("Requests turned away because the password hashing queue was full")
+                .register(meterRegistry);
+        this.timedOut = Counter.builder("quora.password.hashing.timed.out")
+                .description("Requests which gave up waiting for their password hash")
+                .register(meterRegistry);
+    }
+
+    /* Generate a salt and hash the given password, see PasswordCryptographyProvider.encrypt(String) */
+    public String[] encrypt(final String password) throws ServiceUnavailableException {
+        return execute(() -> cryptographyProvider.encrypt(password));
+    }
+
+    /* Hash the given password with the given salt, see PasswordCryptographyProvider.encrypt(String, String) */
+    public String encrypt(final String password, final String salt) throws ServiceUnavailableException {
+        return execute(() -> PasswordCryptographyProvider.encrypt(password, salt));
+    }
+
+    /* Run the given hashing task on the pool and wait for its result.
+     * The wait covers both the time spent in the queue and the hashing itself.
+     */
+    private <T> T execute(final Callable<T> hash) throws ServiceUnavailableException {
+        final Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                final long start = System.nanoTime();
+                try {
+                    return hash.call();
+                } finally {
+                    hashTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new ServiceUnavailableException("HSH-001", "Server is busy, please try again later");
+        }
+
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            timedOut.increment();
+            throw new ServiceUnavailableException("HSH-001", "Server is busy, please try again later");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("HSH-001", "Server is busy, please try again later");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    private static final class HashingThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            Thread thread = new Thread(runnable, "password-hashing-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -2,29 +2,52 @@
  * This service has different method to handle different business logic.
  * Below is list of all the methods and their respective functionality:
  * 1. createQuestion() method would facilitate the creation of a question in database
- * 2. getAllQuestions() method would furnish the details of all the questions
+ *    createQuestions() method would facilitate the creation of many questions in a single transaction
+ * 2. getAllQuestions() method would furnish one page of the questions, serialized
  * 3. editQuestionContent() method would facilitate the update of a given question
  * 4. deleteQuestion() method would facilitate the deletion of a given question.
- * 5. getAllQuestionsByUser() method serves would furnish the details of all the questions per user
+ * 5. getAllQuestionsByUser() method serves would furnish all the questions per user, serialized
+ * 6. searchQuestions() method would furnish one page of the questions matching a search query, best match first
+ * 7. getHotQuestions() method would furnish the questions with the most recent answers, hottest first
+ * Every change to the questions is applied to the QuestionSearchIndex and the HotQuestionRanking once the transaction commits,
+ * and drops the serialized listings of the QuestionPageCache.
  */
 
 package com.upgrad.quora.service.business;
 
+import com.upgrad.quora.service.cache.CachedPage;
+import com.upgrad.quora.service.cache.QuestionCache;
+import com.upgrad.quora.service.cache.QuestionPageCache;
+import com.upgrad.quora.service.cache.UserCache;
+import com.upgrad.quora.service.common.EntityTag;
+import com.upgrad.quora.service.common.KeysetPage;
+import com.upgrad.quora.service.common.PageCursor;
 import com.upgrad.quora.service.dao.QuestionDao;
+import com.upgrad.quora.service.dao.QuestionSearchDao;
 import com.upgrad.quora.service.dao.UserDao;
 import com.upgrad.quora.service.entity.QuestionEntity;
 import com.upgrad.quora.service.entity.UserAuthEntity;
 import com.upgrad.quora.service.entity.UserEntity;
 import com.upgrad.quora.service.exception.AuthorizationFailedException;
 import com.upgrad.quora.service.exception.InvalidQuestionException;
+import com.upgrad.quora.service.exception.InvalidRequestException;
+import com.upgrad.quora.service.exception.PreconditionFailedException;
 import com.upgrad.quora.service.exception.UserNotFoundException;
+import com.upgrad.quora.service.ranking.HotQuestion;
+import com.upgrad.quora.service.ranking.HotQuestionRanking;
+import com.upgrad.quora.service.search.QuestionSearchIndex;
+import com.upgrad.quora.service.search.SearchHit;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.ZonedDateTime;
 import java.util.List;
+import java.util.function.Function;
 
 /* @Service Annotation would help the container to recognize QuestionService as a service class */
 @Service
@@ -37,9 +60,41 @@ public class QuestionService {
     @Autowired
     private UserDao userDao;
 
+    @Autowired
+    private UserCache userCache;
+
+    @Autowired
+    private QuestionCache questionCache;
+
+    @Autowired
+    private QuestionPageCache questionPageCache;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
     @Autowired
     private AuthorizationService authorizationService;
 
+    @Autowired
+    private PageSizePolicy pageSizePolicy;
+
+    @Autowired
+    private QuestionSearchIndex questionSearchIndex;
+
+    @Autowired
+    private QuestionSearchDao questionSearchDao;
+
+    @Autowired
+    private HotQuestionRanking hotQuestionRanking;
+
+    /* Largest number of questions accepted by createQuestions() in a single request */
+    @Value("${quora.question.batch.max-size:10000}")
+    private int maxBatchSize;
+
+    /* Number of questions sent to the database in one JDBC batch, matches hibernate.jdbc.batch_size */
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int jdbcBatchSize;
+
     /* createQuestion() method would facilitate the creation of a question in database
      * This method would take two inputs : the authorization string for user authorization
      * and a QuestionEntity object which holds the details of a question to be persisted
@@ -62,17 +117,68 @@ public class QuestionService {
         questionEntity.setUser(userAuthToken.getUser());
         questionEntity.setDate(ZonedDateTime.now());
         QuestionEntity createdQuestion = questionDao.createQuestion(questionEntity);
+        questionPageCache.invalidateAll();
+        questionSearchIndex.indexQuestion(createdQuestion);
         /* Return the persisted question details back to controller */
         return createdQuestion;
     }
 
-    /* getAllQuestions() method would furnish the details of all the questions
-     * This method would take the authorization string as input for user authorization
-     * If the authorization provided is valid, then the getAllQuestions method would furnish the
-     * details of all the questions from the database.
+    /* createQuestions() method would facilitate the creation of many questions in a single transaction
+     * This method would take two inputs : the authorization string for user authorization
+     * and the list of QuestionEntity objects which hold the details of the questions to be persisted
+     * The authorization is checked once for all the questions and every content is validated before
+     * anything is persisted, so the questions are created all together or not at all.
+     * The questions are inserted in JDBC batches, see QuestionDao.createQuestions()
+     * It would return the persisted objects back to the calling controller, in the given order.
+     */
+    @Transactional(propagation = Propagation.REQUIRED)
+    public List<QuestionEntity> createQuestions(final List<QuestionEntity> questionEntities,
+                                                final String authorization)
+            throws AuthorizationFailedException, InvalidRequestException {
+
+        /* Check if the authorization/accessToken provided is valid or not. It will check the below:
+         *  1.1. User has provided valid access token
+         *  1.2. User has not signed out.
+         */
+        UserAuthEntity userAuthToken = authorizationService.checkAuthorization(authorization,
+                "User is signed out.Sign in first to post a question");
+
+        /* Validate the size of the batch and every content against the limits of the question table */
+        if (questionEntities == null || questionEntities.isEmpty() || questionEntities.size() > maxBatchSize) {
+            throw new InvalidRequestException("REQ-004", "Number of questions must be between 1 and " + maxBatchSize);
+        }
+        for (int i = 0; i < questionEntities.size(); i++) {
+            final String content = questionEntities.get(i).getContent();
+            if (content == null || content.trim().isEmpty() || content.length() > 500) {
+                throw new InvalidRequestException("REQ-005", "Content of question " + i
+                        + " must not be empty and must be at most 500 characters long");
+            }
+        }
+
+        /* Update the user and datetime on every question and persist them to DB in batches */
+        final ZonedDateTime now = ZonedDateTime.now();
+        for (QuestionEntity questionEntity : questionEntities) {
+            questionEntity.setUser(userAuthToken.getUser());
+            questionEntity.setDate(now);
+        }
+        List<QuestionEntity> createdQuestions = questionDao.createQuestions(questionEntities, jdbcBatchSize);
+        questionPageCache.invalidateAll();
+        questionSearchIndex.indexQuestions(createdQuestions);
+        return createdQuestions;
+    }
+
+    /* getAllQuestions() method would furnish one page of the questions, serialized
+     * This method would take the authorization string as input for user authorization, the page size,
+     * the cursor returned for the previous page (null for the first page) and the serializer of the questions.
+     * If the authorization provided is valid, then the page is served from the QuestionPageCache, or else the
+     * questions of the requested page are read from the database, newest first, serialized and cached.
+     * The authorization is checked before and outside of the read only transaction, so a cache hit does not need a
+     * database connection as long as the access token is cached as well. Like every read only transaction, the read
+     * goes to the replica when one is configured, see ReadReplicaConfiguration.
      */
-    public List<QuestionEntity> getAllQuestions(final String authorization)
-            throws AuthorizationFailedException {
+    public CachedPage getAllQuestions(final String authorization, final String after, final Integer limit,
+                                      final Function<List<QuestionEntity>, byte[]> serializer)
+            throws AuthorizationFailedException, InvalidRequestException {
 
         /* Check if the authorization/accessToken provided is valid or not. It will check the below:
          *  1.1. User has provided valid access token
@@ -81,22 +187,42 @@ public class QuestionService {
         UserAuthEntity userAuthToken = authorizationService.checkAuthorization(authorization,
                 "User is signed out.Sign in first to get all questions");
 
-        /* Get the list of all the questions and return the same to the calling controller */
-        List<QuestionEntity> questionEntities = questionDao.getAllQuestions();
-        return questionEntities;
+        /* Validate the page parameters before they reach the cache or the database */
+        final int pageSize = pageSizePolicy.resolve(limit);
+        final Integer afterId = after == null ? null : PageCursor.decodeId(after);
+
+        final String key = QuestionPageCache.allQuestionsKey(after, pageSize);
+        CachedPage cachedPage = questionPageCache.get(key);
+        if (cachedPage != null) {
+            return cachedPage;
+        }
+
+        /* Get the questions of the page plus one more row, which only tells whether a next page exists,
+         * and cache the serialized page along with the cursor of the next page
+         */
+        final long generation = questionPageCache.generation();
+        List<QuestionEntity> questionEntities = readOnly().execute(status -> questionDao.getQuestionsPage(afterId, pageSize + 1));
+        KeysetPage<QuestionEntity> questionPage = KeysetPage.of(questionEntities, pageSize,
+                question -> PageCursor.encode(question.getId()));
+        cachedPage = CachedPage.of(serializer.apply(questionPage.getItems()), questionPage.getNextCursor());
+        questionPageCache.put(key, generation, cachedPage);
+        return cachedPage;
     }
 
     /* editQuestionContent() method would facilitate the update of a given question
-     * This method would take three inputs : the authorization string for user authorization
-     * and a questionId of a question to be edited and the content to be updated.
-     * First, authorization is checked using the AuthorizationService and then questionId is validated
-     * Also, the owner is validated against the logged in user to allow the update.
-     * Details of the question will be updated to database if authorization and question holds good
-     * It would return the updated object back to the calling controller.
+     * This method would take four inputs : the authorization string for user authorization
+     * and a questionId of a question to be edited, the content to be updated and the If-Match header (null if absent).
+     * First, authorization is checked using the AuthorizationService, then the question is updated in a single
+     * statement provided that the logged in user owns it and, if the If-Match header is given, that it holds the
+     * version of the question. The same statement reads the question, so a refused update is told apart:
+     * QUES-001 if the question doesn't exist, ATHR-003 if it belongs to another user, EDIT-001 if the version doesn't
+     * match, without any other round trip.
+     * It would return the updated question, holding its new version, back to the calling controller.
      */
     @Transactional(propagation = Propagation.REQUIRED)
     public QuestionEntity editQuestionContent(final String questionId, final String questionContent,
-                                              final String authorization) throws AuthorizationFailedException, InvalidQuestionException {
+                                              final String authorization, final String ifMatch)
+            throws AuthorizationFailedException, InvalidQuestionException, PreconditionFailedException {
 
         /* Check if the authorization/accessToken provided is valid or not. It will check the below:
          *  1.1. User has provided valid access token
@@ -104,70 +230,177 @@ public class QuestionService {
          */
         UserAuthEntity userAuthToken = authorizationService.checkAuthorization(authorization,
                 "User is signed out.Sign in first to edit the question");
+        final UserEntity loggedInUser = userAuthToken.getUser();
 
-        /* Check if the given question is valid. Throw exception if the question doesn't exist */
-        QuestionEntity questionToBeUpdated = questionDao.getQuestion(questionId);
-        if (questionToBeUpdated == null) {
+        /* Update the question if it is owned by the logged in user and it is at one of the versions of the If-Match header */
+        final List<Integer> versions = EntityTag.versions(ifMatch);
+        Object[] row = questionDao.updateQuestion(questionId, loggedInUser.getId(), questionContent, versions);
+        if (row == null) {
             throw new InvalidQuestionException("QUES-001", "Entered question uuid does not exist");
         }
-
-        /* Check if the logged-in user and the owner of the question is same */
-        final String questionOwner = questionToBeUpdated.getUser().getUuid();
-        final String loggedInUser = userAuthToken.getUser().getUuid();
-        /* Merge the changes to the question if the owner and logged in user are the same
-         * Else, throw exception that only owner of the question can edit
-         */
-        if (questionOwner.equals(loggedInUser)) {
-            questionToBeUpdated.setContent(questionContent);
-            QuestionEntity updatedQuestion = questionDao.updateQuestion(questionToBeUpdated);
-            /* Return the updated questionEntity object back to the calling controller */
-            return updatedQuestion;
-        } else {
+        if (((Number) row[1]).intValue() != loggedInUser.getId()) {
             throw new AuthorizationFailedException("ATHR-003", "Only the question owner can edit the "
                     + "question");
         }
+        if (row[2] == null) {
+            if (versions != null) {
+                throw new PreconditionFailedException("EDIT-001", "The question has been modified since it was read");
+            }
+            /* The question has been deleted since the statement began */
+            throw new InvalidQuestionException("QUES-001", "Entered question uuid does not exist");
+        }
+
+        QuestionEntity updatedQuestion = new QuestionEntity();
+        updatedQuestion.setId(((Number) row[0]).intValue());
+        updatedQuestion.setUuid(questionId);
+        updatedQuestion.setContent(questionContent);
+        updatedQuestion.setVersion(((Number) row[2]).intValue());
+        updatedQuestion.setUser(loggedInUser);
+        questionCache.invalidate(questionId);
+        questionPageCache.invalidateAll();
+        questionSearchIndex.indexQuestion(updatedQuestion);
+        hotQuestionRanking.questionEdited(updatedQuestion);
+        /* Return the updated questionEntity object back to the calling controller */
+        return updatedQuestion;
     }
 
     /*deleteQuestion functions takes in the parameter of question id to be deleted and the access token
      *This functions verifies the token and checks if the access token is valid
      * It also checks the business logic where only either the owner or the admin can delete the question
+     * The question is deleted in a single statement which only deletes the question of another user for an admin,
+     * and which reads the question to tell QUES-001 from ATHR-003 when nothing was deleted.
      */
     @Transactional(propagation = Propagation.REQUIRED)
     public QuestionEntity deleteQuestion(String questionId, String accessToken) throws AuthorizationFailedException, InvalidQuestionException {
 
         UserAuthEntity userAuthEntity = authorizationService.checkAuthorization(accessToken, "User is signed out.Sign in first to delete a question");
-        QuestionEntity questionEntity = questionDao.getQuestion(questionId);
+        UserEntity loggedUser = userAuthEntity.getUser();
+        boolean admin = loggedUser.getRole().equals("admin");
 
-        if (questionEntity == null) {
+        Object[] row = questionDao.deleteQuestion(questionId, admin ? null : loggedUser.getId());
+        if (row == null) {
             throw new InvalidQuestionException("QUES-001", "Entered question uuid does not exist");
-        } else {
-            String loggedUserRole = userAuthEntity.getUser().getRole();
-            String questionOwner = questionEntity.getUser().getUuid();
-            String loggedUser = userAuthEntity.getUser().getUuid();
-            if (loggedUserRole.equals("admin") || loggedUser.equals(questionOwner)) {
-                return questionDao.deleteQuestion(questionEntity);
-            } else {
-                throw new AuthorizationFailedException("ATHR-003", "Only the question owner or admin can delete the question");
-
+        } else if (row[2] == null) {
+            if (admin || ((Number) row[1]).intValue() == loggedUser.getId()) {
+                /* The question has been deleted since the statement began */
+                throw new InvalidQuestionException("QUES-001", "Entered question uuid does not exist");
             }
+            throw new AuthorizationFailedException("ATHR-003", "Only the question owner or admin can delete the question");
+        } else {
+            QuestionEntity questionEntity = new QuestionEntity();
+            questionEntity.setId(((Number) row[0]).intValue());
+            questionEntity.setUuid(questionId);
+            questionCache.invalidate(questionId);
+            questionPageCache.invalidateAll();
+            questionSearchIndex.removeQuestion(questionEntity);
+            hotQuestionRanking.questionRemoved(questionEntity);
+            return questionEntity;
         }
     }
 
-    /*getAllQuestionsByUser takes in the parameter of user id
-     *Based on user user id it retrieves the questions posted by that user.
+    /*getAllQuestionsByUser takes in the parameter of user id and the serializer of the questions
+     *Based on user user id it retrieves the questions posted by that user, serialized.
      * It also check some validation of access token and if the user id exists in teh database
+     * The user is served from the UserCache when it has been looked up before, and the serialized questions
+     * from the QuestionPageCache, in which case no database connection is needed.
      */
-    public List<QuestionEntity> getAllQuestionsByUser(String userId, String accessToken) throws AuthorizationFailedException, UserNotFoundException {
+    public CachedPage getAllQuestionsByUser(String userId, String accessToken,
+                                            Function<List<QuestionEntity>, byte[]> serializer) throws AuthorizationFailedException, UserNotFoundException {
         UserAuthEntity userAuthEntity = authorizationService.checkAuthorization(accessToken, "User is signed out.Sign in first to get all questions posted by a specific user");
-        UserEntity userDetails = userDao.getUserDetails(userId);
+        final String key = QuestionPageCache.userQuestionsKey(userId);
+        CachedPage cachedPage = questionPageCache.get(key);
+        if (cachedPage != null) {
+            return cachedPage;
+        }
+
+        final long generation = questionPageCache.generation();
+        UserEntity userDetails = userCache.get(userId);
+        if (userDetails == null) {
+            userDetails = readOnly().execute(status -> userDao.getUserDetails(userId));
+            if (userDetails != null) {
+                userCache.put(userDetails);
+            }
+        }
 
         if (userDetails == null) {
             throw new UserNotFoundException("USR-001", "User with entered uuid whose question details are to be seen does not exist");
         } else {
-            return questionDao.getAllQuestionByUser(userDetails);
+            final UserEntity user = userDetails;
+            List<QuestionEntity> questionEntities = readOnly().execute(status -> questionDao.getAllQuestionByUser(user));
+            cachedPage = CachedPage.of(serializer.apply(questionEntities), null);
+            questionPageCache.put(key, generation, cachedPage);
+            return cachedPage;
         }
 
     }
 
+    /* searchQuestions() method would furnish one page of the questions matching a search query
+     * This method would take the authorization string as input for user authorization, the search query,
+     * the page size and the cursor returned for the previous page (null for the first page).
+     * Questions match when their content or the content of one of their answers holds a word of the query.
+     * They are ranked by relevance, best match first. Depending on "quora.search.mode" they are served from the
+     * QuestionSearchIndex of this node without a database query, or from the full text indexes of the database in a
+     * read only transaction, which the authorization is checked before and outside of.
+     */
+    public KeysetPage<SearchHit> searchQuestions(final String authorization, final String query, final String after,
+                                                 final Integer limit)
+            throws AuthorizationFailedException, InvalidRequestException {
 
-}
\ No newline at end of file
+        /* Check if the authorization/accessToken provided is valid or not. It will check the below:
+         *  1.1. User has provided valid access token
+         *  1.2. User has not signed out.
+         */
+        UserAuthEntity userAuthToken = authorizationService.checkAuthorization(authorization,
+                "User is signed out.Sign in first to search questions");
+
+        /* Validate the query and the page parameters, the cursor holds the score and the id of the last hit */
+        final List<String> terms = questionSearchIndex.queryTerms(query);
+        if (terms.isEmpty()) {
+            throw new InvalidRequestException("REQ-006", "Search query must contain at least one word");
+        }
+        final int pageSize = pageSizePolicy.resolve(limit);
+        double afterScore = 0;
+        Integer afterId = null;
+        if (after != null) {
+            final String[] position = PageCursor.decode(after, 2);
+            try {
+                afterScore = Double.parseDouble(position[0]);
+                afterId = Integer.valueOf(position[1]);
+            } catch (NumberFormatException e) {
+                throw new InvalidRequestException("REQ-001", "Entered page cursor is invalid");
+            }
+        }
+
+        /* Get the hits of the page plus one more, which only tells whether a next page exists */
+        final double pageAfterScore = afterScore;
+        final Integer pageAfterId = afterId;
+        List<SearchHit> hits = questionSearchIndex.isEnabled()
+                ? questionSearchIndex.search(terms, afterScore, afterId, pageSize + 1)
+                : readOnly().execute(status -> questionSearchDao.searchQuestions(terms, pageAfterScore, pageAfterId, pageSize + 1));
+        return KeysetPage.of(hits, pageSize, hit -> PageCursor.encode(hit.getScore(), hit.getQuestionId()));
+    }
+
+    /* getHotQuestions() method would furnish the questions which got the most answers recently, hottest first
+     * This method would take the authorization string as input for user authorization and the number of questions.
+     * The questions are served from the HotQuestionRanking without a database query.
+     */
+    public List<HotQuestion> getHotQuestions(final String authorization, final Integer limit)
+            throws AuthorizationFailedException, InvalidRequestException {
+
+        /* Check if the authorization/accessToken provided is valid or not. It will check the below:
+         *  1.1. User has provided valid access token
+         *  1.2. User has not signed out.
+         */
+        UserAuthEntity userAuthToken = authorizationService.checkAuthorization(authorization,
+                "User is signed out.Sign in first to get the hot questions");
+
+        return hotQuestionRanking.top(pageSizePolicy.resolve(limit));
+    }
+
+    /* Read only transaction for the reads of the listings which are not served from the cache */
+    private TransactionTemplate readOnly() {
+        final TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        return readOnly;
+    }
+}
@@ -1,5 +1,6 @@
 package com.upgrad.quora.service.business;
 
+import com.upgrad.quora.service.cache.UserCache;
 import com.upgrad.quora.service.dao.UserDao;
 import com.upgrad.quora.service.entity.UserAuthEntity;
 import com.upgrad.quora.service.entity.UserEntity;
@@ -8,6 +9,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.ZonedDateTime;
 import java.util.UUID;
@@ -18,8 +20,21 @@ public class UserBusinessService {
     @Autowired
     private UserDao userDao;
 
+    /* User profiles are served from this cache when they have been looked up before */
     @Autowired
-    private PasswordCryptographyProvider cryptographyProvider;
+    private UserCache userCache;
+
+    /* Password hashing is done on a dedicated bounded pool, see PasswordHashingExecutor */
+    @Autowired
+    private PasswordHashingExecutor passwordHashingExecutor;
+
+    /* Signs the access tokens with the server secret, see ServiceConfiguration */
+    @Autowired
+    private JwtTokenProvider jwtTokenProvider;
+
+    /* Sign up and sign in only hold a transaction, and so a pooled connection, for their insert, not while hashing */
+    @Autowired
+    private TransactionTemplate transactionTemplate;
 
     /* Added by Sangeeta as part of implementing getUserDetails functionality
      * Here, autowiring the authorizationService instance.
@@ -34,9 +49,9 @@ public class UserBusinessService {
      *It checks few validations
      * if the username or email already exists than it will through exceptions.
      * Otherwise it will encrypt the password and and post it to database.
+     * The password is hashed outside of any transaction, only the insert runs in one.
      */
-    @Transactional(propagation = Propagation.REQUIRED)
-    public UserEntity createUser(UserEntity userEntity) throws SignUpRestrictedException {
+    public UserEntity createUser(UserEntity userEntity) throws SignUpRestrictedException, ServiceUnavailableException {
 
         UserEntity username = userDao.getUserByUsername(userEntity.getUsername());
         UserEntity email = userDao.getUserByEmail(userEntity.getEmail());
@@ -52,10 +67,10 @@ public class UserBusinessService {
         } else {
 
             //Encrypting the password and adding salt to it for better security
-            String encryptedText[] = cryptographyProvider.encrypt(userEntity.getPassword());
+            String encryptedText[] = passwordHashingExecutor.encrypt(userEntity.getPassword());
             userEntity.setSalt(encryptedText[0]);
             userEntity.setPassword(encryptedText[1]);
-            return userDao.createUser(userEntity);
+            return transactionTemplate.execute(status -> userDao.createUser(userEntity));
         }
 
     }
@@ -64,31 +79,35 @@ public class UserBusinessService {
      *It validates the username and the password provided by the user.
      * If the validation is passed JWT token is generated and is stored in the database
      *This JWT token is further used to access the endpoints at later stage by the user.
+     * The password is hashed outside of any transaction, only the insert of the token runs in one.
+     * A user deleted by an admin keeps its username until UserPurgeJob deletes the row, but cannot sign in any more.
      */
-    @Transactional(propagation = Propagation.REQUIRED)
-    public UserAuthEntity userAuthentication(String username, String password) throws AuthenticationFailedException {
+    public UserAuthEntity userAuthentication(String username, String password)
+            throws AuthenticationFailedException, ServiceUnavailableException {
 
         UserEntity userEntity = userDao.getUserByUsername(username);
 
-        if (userEntity == null) {
+        if (userEntity == null || userEntity.getDeletedAt() != null) {
             throw new AuthenticationFailedException("ATH-001", "This username does not exist");
 
         }
 
-        String encryptedPassword = cryptographyProvider.encrypt(password, userEntity.getSalt());
+        String encryptedPassword = passwordHashingExecutor.encrypt(password, userEntity.getSalt());
 
         if (userEntity.getPassword().equals(encryptedPassword)) {
-            JwtTokenProvider jwtTokenProvider = new JwtTokenProvider(encryptedPassword);
             UserAuthEntity userAuthEntity = new UserAuthEntity();
             userAuthEntity.setUser(userEntity);
             userAuthEntity.setUuid(UUID.randomUUID().toString());
             final ZonedDateTime now = ZonedDateTime.now();
             final ZonedDateTime expiresAt = now.plusHours(10);
-            userAuthEntity.setAccessToken(jwtTokenProvider.generateToken(userEntity.getUuid(), now, expiresAt));
+            userAuthEntity.setAccessToken(jwtTokenProvider.generateToken(userEntity.getUuid(), userEntity.getId(),
+                    userEntity.getRole(), userEntity.getVersion(), now, expiresAt));
             userAuthEntity.setExpiresAt(expiresAt);
             userAuthEntity.setLoginAt(now);
-            userDao.createToken(userAuthEntity);
-            return userAuthEntity;
+            return transactionTemplate.execute(status -> {
+                userDao.createToken(userAuthEntity);
+                return userAuthEntity;
+            });
         } else {
             throw new AuthenticationFailedException("ATH-002", "Password failed");
         }
@@ -120,6 +139,8 @@ public class UserBusinessService {
         } else {
             final ZonedDateTime now = ZonedDateTime.now();
             userAuthEntity.setLogoutAt(now);
+            /* The signed out token must not be served from the access token cache any more */
+            authorizationService.invalidateAccessToken(accessToken);
             return userAuthEntity;
         }
 
@@ -134,14 +155,23 @@ public class UserBusinessService {
      * 2. Based on the given UUID, pull the user details and return the same to the controller.
      * 3. If user with given UUID doesn't exist, throw UserNotFoundException to controller.
      */
+    @Transactional(readOnly = true)
     public UserEntity getUserDetails(final String userId, final String authorization)
             throws AuthorizationFailedException, UserNotFoundException {
         /* Check if the Authorization is valid or not */
         UserAuthEntity userAuthEntity = authorizationService.checkAuthorization(authorization,
                 "User is signed out.Sign in first to get user details");
 
-        /* Based on the given userId, get the user details and return to the controller */
-        UserEntity userDetails = userDao.getUserDetails(userId);
+        /* Based on the given userId, get the user details from the cache or else from the database and return to
+         * the controller
+         */
+        UserEntity userDetails = userCache.get(userId);
+        if (userDetails == null) {
+            userDetails = userDao.getUserDetails(userId);
+            if (userDetails != null) {
+                userCache.put(userDetails);
+            }
+        }
 
         /* If the user doesn't exist, throw exception */
         if (userDetails == null) {
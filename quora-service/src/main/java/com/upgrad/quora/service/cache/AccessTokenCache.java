@@ -0,0 +1,57 @@
+/* AccessTokenCache is an in-process cache of access_token -> user_auth snapshot.
+ * Every authenticated endpoint goes through AuthorizationService.checkAuthorization, which
+ * would otherwise look up user_auth by access_token on every request.
+ * The cache is bounded by size and every entry expires a fixed time after it was written, so a
+ * row changed outside of this application is picked up again after at most one TTL.
+ * Sign out and user deletion invalidate the affected entries immediately. Hits, misses and evictions are
+ * reported in the cache metrics tagged cache=access-tokens.
+ */
+package com.upgrad.quora.service.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.upgrad.quora.service.entity.UserAuthEntity;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+@Component
+public class AccessTokenCache {
+
+    private final Cache<String, CachedAccessToken> cache;
+
+    public AccessTokenCache(@Value("${quora.auth.token-cache.maximum-size:10000}") final long maximumSize,
+                            @Value("${quora.auth.token-cache.expire-after-write-seconds:300}") final long expireAfterWriteSeconds,
+                            final MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWriteSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "access-tokens");
+    }
+
+    /* Return a detached copy of the cached user_auth row or null if the token is not cached */
+    public UserAuthEntity get(final String accessToken) {
+        CachedAccessToken cachedAccessToken = cache.getIfPresent(accessToken);
+        return cachedAccessToken == null ? null : cachedAccessToken.toUserAuthEntity();
+    }
+
+    /* Cache a user_auth row which has just been read from the database */
+    public void put(final UserAuthEntity userAuthEntity) {
+        cache.put(userAuthEntity.getAccessToken(), CachedAccessToken.of(userAuthEntity));
+    }
+
+    /* Drop a single access token, used when the user signs out */
+    public void invalidate(final String accessToken) {
+        cache.invalidate(accessToken);
+    }
+
+    /* Drop every access token belonging to the given user, used when the user is deleted */
+    public void invalidateUser(final Integer userId) {
+        cache.asMap().values().removeIf(cachedAccessToken -> userId.equals(cachedAccessToken.getUserId()));
+    }
+}
@@ -0,0 +1,75 @@
+/* AccessTokenRevocationList keeps the access tokens which have been revoked before their expiry, so that a token
+ * verified by its signature alone (see AuthorizationService) is not accepted after sign out or user deletion.
+ * Signed out tokens are kept by their key id (the "kid" header of the JWT) and deleted users by their uuid along with
+ * the time of deletion, so every token issued to the user up to that time is revoked with a single entry.
+ * An entry is only needed until the tokens it revokes have expired, expired entries are dropped as new ones are added.
+ * The list lives in the memory of this instance only, it is not shared between instances.
+ */
+package com.upgrad.quora.service.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+public class AccessTokenRevocationList {
+
+    /* key id -> expiry of the signed out token */
+    private final Map<String, Instant> revokedTokens = new ConcurrentHashMap<>();
+
+    /* user uuid -> time until which every token issued to the user is revoked */
+    private final Map<String, Instant> revokedUsers = new ConcurrentHashMap<>();
+
+    /* Tokens live for at most this long, a user entry can be dropped once all tokens issued before it have expired */
+    private final long maximumTokenLifetimeSeconds;
+
+    /* Expired entries are looked for at most once a minute */
+    private static final long PURGE_INTERVAL_MILLIS = 60_000L;
+
+    private final AtomicLong lastPurgeMillis = new AtomicLong();
+
+    public AccessTokenRevocationList(@Value("${quora.auth.jwt.maximum-token-lifetime-seconds:36000}") final long maximumTokenLifetimeSeconds) {
+        this.maximumTokenLifetimeSeconds = maximumTokenLifetimeSeconds;
+    }
+
+    /* Revoke a single token, used when the user signs out */
+    public void revokeToken(final String keyId, final Instant expiresAt) {
+        purgeExpired();
+        revokedTokens.put(keyId, expiresAt);
+    }
+
+    /* Revoke every token issued to the given user until now, used when the user is deleted */
+    public void revokeUser(final String userUuid) {
+        purgeExpired();
+        revokedUsers.put(userUuid, Instant.now());
+    }
+
+    /* Check whether the token with the given key id, issued to the given user at the given time, has been revoked */
+    public boolean isRevoked(final String keyId, final String userUuid, final Instant issuedAt) {
+        if (keyId != null && revokedTokens.containsKey(keyId)) {
+            return true;
+        }
+        final Instant userRevokedAt = revokedUsers.get(userUuid);
+        return userRevokedAt != null && !issuedAt.isAfter(userRevokedAt);
+    }
+
+    public int size() {
+        return revokedTokens.size() + revokedUsers.size();
+    }
+
+    private void purgeExpired() {
+        final long lastPurge = lastPurgeMillis.get();
+        final long nowMillis = System.currentTimeMillis();
+        if (nowMillis - lastPurge < PURGE_INTERVAL_MILLIS || !lastPurgeMillis.compareAndSet(lastPurge, nowMillis)) {
+            return;
+        }
+        final Instant now = Instant.ofEpochMilli(nowMillis);
+        revokedTokens.values().removeIf(expiresAt -> expiresAt.isBefore(now));
+        final Instant oldestLiveIssue = now.minusSeconds(maximumTokenLifetimeSeconds);
+        revokedUsers.values().removeIf(revokedAt -> revokedAt.isBefore(oldestLiveIssue));
+    }
+}
@@ -0,0 +1,76 @@
+/* CachedAccessToken is an immutable snapshot of a user_auth row and the user fields that the
+ * authorization path needs (id, uuid, role and version).
+ * It is kept in the AccessTokenCache so that a signed in user does not need a database lookup
+ * on every request. A fresh UserAuthEntity is built from the snapshot on every cache hit so that
+ * callers can never modify the cached state.
+ */
+package com.upgrad.quora.service.cache;
+
+import com.upgrad.quora.service.entity.UserAuthEntity;
+import com.upgrad.quora.service.entity.UserEntity;
+
+import java.time.ZonedDateTime;
+
+public final class CachedAccessToken {
+
+    private final long authId;
+    private final String authUuid;
+    private final String accessToken;
+    private final Integer userId;
+    private final String userUuid;
+    private final String role;
+    private final Integer userVersion;
+    private final ZonedDateTime expiresAt;
+    private final ZonedDateTime loginAt;
+    private final ZonedDateTime logoutAt;
+
+    private CachedAccessToken(final UserAuthEntity userAuthEntity) {
+        this.authId = userAuthEntity.getId();
+        this.authUuid = userAuthEntity.getUuid();
+        this.accessToken = userAuthEntity.getAccessToken();
+        this.userId = userAuthEntity.getUser().getId();
+        this.userUuid = userAuthEntity.getUser().getUuid();
+        this.role = userAuthEntity.getUser().getRole();
+        this.userVersion = userAuthEntity.getUser().getVersion();
+        this.expiresAt = userAuthEntity.getExpiresAt();
+        this.loginAt = userAuthEntity.getLoginAt();
+        this.logoutAt = userAuthEntity.getLogoutAt();
+    }
+
+    /* Take a snapshot of the given user_auth row along with the id, uuid, role and version of its user */
+    public static CachedAccessToken of(final UserAuthEntity userAuthEntity) {
+        return new CachedAccessToken(userAuthEntity);
+    }
+
+    /* Build a detached UserAuthEntity from the snapshot.
+     * The user attached to it only carries id, uuid, role and version, which is all the authorization
+     * path and the business services read. The id is enough for Hibernate to use the user as a
+     * foreign key reference when a question or an answer is persisted, as long as the version is set:
+     * a versioned entity without a version is taken for a new one and the persist fails.
+     */
+    public UserAuthEntity toUserAuthEntity() {
+        UserEntity user = new UserEntity();
+        user.setId(userId);
+        user.setUuid(userUuid);
+        user.setRole(role);
+        user.setVersion(userVersion);
+
+        UserAuthEntity userAuthEntity = new UserAuthEntity();
+        userAuthEntity.setId(authId);
+        userAuthEntity.setUuid(authUuid);
+        userAuthEntity.setAccessToken(accessToken);
+        userAuthEntity.setUser(user);
+        userAuthEntity.setExpiresAt(expiresAt);
+        userAuthEntity.setLoginAt(loginAt);
+        userAuthEntity.setLogoutAt(logoutAt);
+        return userAuthEntity;
+    }
+
+    public Integer getUserId() {
+        return userId;
+    }
+
+    public String getAccessToken() {
+        return accessToken;
+    }
+}
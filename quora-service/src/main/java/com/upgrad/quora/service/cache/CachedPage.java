@@ -0,0 +1,43 @@
+/* CachedPage is an immutable, already serialized response body kept in the QuestionPageCache, along with its ETag
+ * and the cursor of the next page. The body is written to the response as it is, so a cache hit neither builds
+ * response objects nor runs them through the JSON serializer again.
+ */
+package com.upgrad.quora.service.cache;
+
+import org.springframework.util.DigestUtils;
+
+public final class CachedPage {
+
+    private final byte[] body;
+    private final String etag;
+    private final String nextCursor;
+
+    private CachedPage(final byte[] body, final String nextCursor) {
+        this.body = body;
+        this.etag = "\"" + DigestUtils.md5DigestAsHex(body) + "\"";
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * @param body       - serialized response body, must not be modified afterwards
+     * @param nextCursor - cursor of the next page, null on the last page or for a list which is not paginated
+     * @return - the page, its ETag is derived from the body
+     */
+    public static CachedPage of(final byte[] body, final String nextCursor) {
+        return new CachedPage(body, nextCursor);
+    }
+
+    /* Serialized response body, shared by every hit and never to be modified */
+    public byte[] getBody() {
+        return body;
+    }
+
+    /* Strong ETag of the body, quoted */
+    public String getEtag() {
+        return etag;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
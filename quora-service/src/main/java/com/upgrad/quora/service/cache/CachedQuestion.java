@@ -0,0 +1,66 @@
+/* CachedQuestion is an immutable snapshot of a question row and the user fields that the answer path needs
+ * (id, uuid, role and version of its owner).
+ * It is kept in the QuestionCache so that answering a question does not need a database lookup of the question. A
+ * fresh QuestionEntity is built from the snapshot on every cache hit so that callers can never modify the cached state.
+ * The answer count and the date of the last answer change with every answer and are not part of the snapshot.
+ */
+package com.upgrad.quora.service.cache;
+
+import com.upgrad.quora.service.entity.QuestionEntity;
+import com.upgrad.quora.service.entity.UserEntity;
+
+import java.time.ZonedDateTime;
+
+public final class CachedQuestion {
+
+    private final Integer id;
+    private final String uuid;
+    private final String content;
+    private final ZonedDateTime date;
+    private final Integer version;
+    private final Integer userId;
+    private final String userUuid;
+    private final String userRole;
+    private final Integer userVersion;
+
+    private CachedQuestion(final QuestionEntity questionEntity) {
+        this.id = questionEntity.getId();
+        this.uuid = questionEntity.getUuid();
+        this.content = questionEntity.getContent();
+        this.date = questionEntity.getDate();
+        this.version = questionEntity.getVersion();
+        this.userId = questionEntity.getUser().getId();
+        this.userUuid = questionEntity.getUser().getUuid();
+        this.userRole = questionEntity.getUser().getRole();
+        this.userVersion = questionEntity.getUser().getVersion();
+    }
+
+    /* Take a snapshot of the given question row along with the id, uuid, role and version of its owner */
+    public static CachedQuestion of(final QuestionEntity questionEntity) {
+        return new CachedQuestion(questionEntity);
+    }
+
+    /* Build a detached QuestionEntity from the snapshot.
+     * The id is enough for Hibernate to use the question as a foreign key reference when an answer is persisted.
+     */
+    public QuestionEntity toQuestionEntity() {
+        UserEntity user = new UserEntity();
+        user.setId(userId);
+        user.setUuid(userUuid);
+        user.setRole(userRole);
+        user.setVersion(userVersion);
+
+        QuestionEntity question = new QuestionEntity();
+        question.setId(id);
+        question.setUuid(uuid);
+        question.setContent(content);
+        question.setDate(date);
+        question.setVersion(version);
+        question.setUser(user);
+        return question;
+    }
+
+    public String getUserUuid() {
+        return userUuid;
+    }
+}
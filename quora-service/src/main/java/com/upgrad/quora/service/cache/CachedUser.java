@@ -0,0 +1,61 @@
+/* CachedUser is an immutable snapshot of a users row, without its password and salt.
+ * It is kept in the UserCache so that a user profile does not need a database lookup on every request. A fresh
+ * UserEntity is built from the snapshot on every cache hit so that callers can never modify the cached state.
+ */
+package com.upgrad.quora.service.cache;
+
+import com.upgrad.quora.service.entity.UserEntity;
+
+public final class CachedUser {
+
+    private final Integer id;
+    private final String uuid;
+    private final String firstName;
+    private final String lastName;
+    private final String username;
+    private final String email;
+    private final String country;
+    private final String aboutMe;
+    private final String dob;
+    private final String role;
+    private final String contactNumber;
+    private final Integer version;
+
+    private CachedUser(final UserEntity userEntity) {
+        this.id = userEntity.getId();
+        this.uuid = userEntity.getUuid();
+        this.firstName = userEntity.getFirstName();
+        this.lastName = userEntity.getLastName();
+        this.username = userEntity.getUsername();
+        this.email = userEntity.getEmail();
+        this.country = userEntity.getCountry();
+        this.aboutMe = userEntity.getAboutMe();
+        this.dob = userEntity.getDob();
+        this.role = userEntity.getRole();
+        this.contactNumber = userEntity.getContactNumber();
+        this.version = userEntity.getVersion();
+    }
+
+    /* Take a snapshot of the given users row */
+    public static CachedUser of(final UserEntity userEntity) {
+        return new CachedUser(userEntity);
+    }
+
+    /* Build a detached UserEntity from the snapshot, its password and salt are null */
+    public UserEntity toUserEntity() {
+        UserEntity user = new UserEntity();
+        user.setId(id);
+        user.setUuid(uuid);
+        user.setFirstName(firstName);
+        user.setLastName(lastName);
+        user.setUsername(username);
+        user.setEmail(email);
+        user.setCountry(country);
+        user.setAboutMe(aboutMe);
+        user.setDob(dob);
+        user.setRole(role);
+        user.setContactNumber(contactNumber);
+        user.setVersion(version);
+        return user;
+    }
+}
@@ -0,0 +1,64 @@
+/* QuestionCache is an in-process cache of question uuid -> question row snapshot.
+ * Questions are looked up by uuid whenever they are answered, and their content rarely changes.
+ * The cache is bounded by size and every entry expires a fixed time after it was written, so a row changed outside
+ * of this application is picked up again after at most one TTL.
+ * Editing or deleting a question invalidates its entry, deleting a user invalidates the entries of all the questions
+ * of the user. Hits, misses and evictions are reported in the cache metrics tagged cache=questions.
+ */
+package com.upgrad.quora.service.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.upgrad.quora.service.common.AfterCommit;
+import com.upgrad.quora.service.entity.QuestionEntity;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+@Component
+public class QuestionCache {
+
+    private final Cache<String, CachedQuestion> cache;
+
+    public QuestionCache(@Value("${quora.cache.questions.maximum-size:10000}") final long maximumSize,
+                         @Value("${quora.cache.questions.expire-after-write-seconds:300}") final long expireAfterWriteSeconds,
+                         final MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWriteSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "questions");
+    }
+
+    /* Return a detached copy of the cached question or null if the question is not cached */
+    public QuestionEntity get(final String uuid) {
+        CachedQuestion cachedQuestion = cache.getIfPresent(uuid);
+        return cachedQuestion == null ? null : cachedQuestion.toQuestionEntity();
+    }
+
+    /* Cache a question row which has just been read from the database along with its owner */
+    public void put(final QuestionEntity questionEntity) {
+        cache.put(questionEntity.getUuid(), CachedQuestion.of(questionEntity));
+    }
+
+    /* Drop a single question, used when the question is edited or deleted.
+     * The entry is dropped right away and again once the current transaction commits, so that a concurrent request
+     * cannot leave the old row in the cache.
+     */
+    public void invalidate(final String uuid) {
+        cache.invalidate(uuid);
+        AfterCommit.run(() -> cache.invalidate(uuid));
+    }
+
+    /* Drop every question of the given user, used when the user is deleted along with its questions */
+    public void invalidateUser(final String userUuid) {
+        final Runnable invalidation = () -> cache.asMap().values()
+                .removeIf(cachedQuestion -> userUuid.equals(cachedQuestion.getUserUuid()));
+        invalidation.run();
+        AfterCommit.run(invalidation);
+    }
+}
@@ -0,0 +1,87 @@
+/* QuestionPageCache is an in-process cache of the serialized responses of GET /question/all, one entry per page, and
+ * of GET /question/all/{userId}, one entry per user.
+ * Every page shows the answer count and last answer time of its questions, so any change to a question or an answer
+ * may change any page. Rather than working out which pages a change touches, every change drops the whole cache once
+ * its transaction commits. A change also moves the generation forward, and a page read from the database is only
+ * cached if no change committed since its read began, so that a page read before a commit is never cached after it.
+ * The cache is bounded by size and every entry expires a fixed time after it was written, so a change made outside
+ * of this application is picked up again after at most one TTL. Hits, misses and evictions are reported in the cache
+ * metrics tagged cache=question-pages.
+ */
+package com.upgrad.quora.service.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.upgrad.quora.service.common.AfterCommit;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+public class QuestionPageCache {
+
+    private final Cache<String, CachedPage> cache;
+
+    /* Number of changes committed so far */
+    private final AtomicLong generation = new AtomicLong();
+
+    public QuestionPageCache(@Value("${quora.cache.question-pages.maximum-size:1000}") final long maximumSize,
+                             @Value("${quora.cache.question-pages.expire-after-write-seconds:60}") final long expireAfterWriteSeconds,
+                             final MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWriteSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "question-pages");
+    }
+
+    /* Key of a page of all the questions, after is the cursor of the previous page or null for the first page */
+    public static String allQuestionsKey(final String after, final int pageSize) {
+        return "all:" + pageSize + ":" + (after == null ? "" : after);
+    }
+
+    /* Key of the list of the questions of a user */
+    public static String userQuestionsKey(final String userUuid) {
+        return "user:" + userUuid;
+    }
+
+    /* Generation to pass to put(), to be taken before the page is read from the database */
+    public long generation() {
+        return generation.get();
+    }
+
+    /* Return the cached page or null if the page is not cached */
+    public CachedPage get(final String key) {
+        return cache.getIfPresent(key);
+    }
+
+    /* Cache a page read from the database, unless a change committed since the given generation was taken */
+    public void put(final String key, final long readGeneration, final CachedPage page) {
+        if (generation.get() != readGeneration) {
+            return;
+        }
+        cache.put(key, page);
+        /* A change which committed while the page was put may have cleared the cache just before */
+        if (generation.get() != readGeneration) {
+            cache.invalidate(key);
+        }
+    }
+
+    /* Drop every page, used whenever a question or an answer is created, edited or deleted.
+     * The pages are dropped right away and again once the current transaction commits, so that a concurrent request
+     * cannot leave a page read before the commit in the cache.
+     */
+    public void invalidateAll() {
+        final Runnable invalidation = () -> {
+            generation.incrementAndGet();
+            cache.invalidateAll();
+        };
+        invalidation.run();
+        AfterCommit.run(invalidation);
+    }
+}
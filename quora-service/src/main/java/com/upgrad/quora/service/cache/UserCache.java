@@ -0,0 +1,56 @@
+/* UserCache is an in-process cache of user uuid -> users row snapshot.
+ * User profiles are read far more often than they change, the only change being the deletion of the user.
+ * The cache is bounded by size and every entry expires a fixed time after it was written, so a row changed outside
+ * of this application is picked up again after at most one TTL.
+ * The deletion of a user invalidates its entry. Hits, misses and evictions are reported in the cache metrics
+ * tagged cache=users.
+ */
+package com.upgrad.quora.service.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.upgrad.quora.service.common.AfterCommit;
+import com.upgrad.quora.service.entity.UserEntity;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+@Component
+public class UserCache {
+
+    private final Cache<String, CachedUser> cache;
+
+    public UserCache(@Value("${quora.cache.users.maximum-size:10000}") final long maximumSize,
+                     @Value("${quora.cache.users.expire-after-write-seconds:300}") final long expireAfterWriteSeconds,
+                     final MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWriteSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "users");
+    }
+
+    /* Return a detached copy of the cached user or null if the user is not cached */
+    public UserEntity get(final String uuid) {
+        CachedUser cachedUser = cache.getIfPresent(uuid);
+        return cachedUser == null ? null : cachedUser.toUserEntity();
+    }
+
+    /* Cache a users row which has just been read from the database */
+    public void put(final UserEntity userEntity) {
+        cache.put(userEntity.getUuid(), CachedUser.of(userEntity));
+    }
+
+    /* Drop a user, used when the user is deleted.
+     * The entry is dropped right away and again once the current transaction commits, so that a concurrent request
+     * cannot leave the deleted row in the cache.
+     */
+    public void invalidate(final String uuid) {
+        cache.invalidate(uuid);
+        AfterCommit.run(() -> cache.invalidate(uuid));
+    }
+}
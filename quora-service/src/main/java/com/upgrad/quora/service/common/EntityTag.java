@@ -0,0 +1,48 @@
+package com.upgrad.quora.service.common;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * EntityTag turns the version of a user, question or answer row into the ETag sent to the clients, and reads the
+ * versions held by the If-Match header of an edit.
+ */
+public final class EntityTag {
+
+    private EntityTag() {
+    }
+
+    /**
+     * @param version - version of the row, see the @Version attribute of the entities
+     * @return - strong ETag of the row, quoted
+     */
+    public static String of(final Integer version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * @param ifMatch - value of the If-Match request header, a comma separated list of ETags or *, null if absent
+     * @return - the versions held by the header, or null if any version matches, i.e. the header is absent or holds *.
+     * Weak ETags and ETags which are not a version never match, so the list may be empty.
+     */
+    public static List<Integer> versions(final String ifMatch) {
+        if (ifMatch == null) {
+            return null;
+        }
+        final List<Integer> versions = new ArrayList<Integer>();
+        for (String candidate : ifMatch.split(",")) {
+            final String trimmed = candidate.trim();
+            if (trimmed.equals("*")) {
+                return null;
+            }
+            if (trimmed.length() > 2 && trimmed.startsWith("\"") && trimmed.endsWith("\"")) {
+                try {
+                    versions.add(Integer.valueOf(trimmed.substring(1, trimmed.length() - 1)));
+                } catch (NumberFormatException e) {
+                    /* Not the ETag of a version, it matches no version */
+                }
+            }
+        }
+        return versions;
+    }
+}
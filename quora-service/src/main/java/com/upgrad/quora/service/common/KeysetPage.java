@@ -0,0 +1,44 @@
+package com.upgrad.quora.service.common;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * KeysetPage holds the records of one page of a keyset paginated listing along with the cursor of the next page.
+ * The cursor is null when there are no more records after this page.
+ */
+public class KeysetPage<T> {
+
+    private final List<T> items;
+
+    private final String nextCursor;
+
+    public KeysetPage(final List<T> items, final String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Builds a page from the rows fetched with one extra row beyond the page size.
+     * The extra row only tells whether a next page exists and is dropped from the page.
+     *
+     * @param rows     - rows fetched with a limit of pageSize + 1
+     * @param pageSize - page size requested
+     * @param cursorOf - derives the cursor from the last record of the page
+     */
+    public static <T> KeysetPage<T> of(final List<T> rows, final int pageSize, final Function<T, String> cursorOf) {
+        if (rows.size() <= pageSize) {
+            return new KeysetPage<T>(rows, null);
+        }
+        List<T> items = rows.subList(0, pageSize);
+        return new KeysetPage<T>(items, cursorOf.apply(items.get(pageSize - 1)));
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
@@ -0,0 +1,63 @@
+package com.upgrad.quora.service.common;
+
+import com.upgrad.quora.service.exception.InvalidRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * PageCursor encodes the keyset position of the last record of a page into an opaque, url safe string
+ * which the client passes back to fetch the next page.
+ */
+public final class PageCursor {
+
+    private static final String SEPARATOR = "|";
+
+    private PageCursor() {
+    }
+
+    /**
+     * @param parts - values identifying the position of the last record of the page
+     * @return - opaque cursor
+     */
+    public static String encode(final Object... parts) {
+        StringBuilder cursor = new StringBuilder();
+        for (int i = 0; i < parts.length; i++) {
+            if (i > 0) {
+                cursor.append(SEPARATOR);
+            }
+            cursor.append(parts[i]);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param cursor        - opaque cursor received from the client
+     * @param expectedParts - number of values the cursor must hold
+     * @return - values encoded in the cursor
+     * @throws InvalidRequestException - if the cursor was not produced by {@link #encode(Object...)}
+     */
+    public static String[] decode(final String cursor, final int expectedParts) throws InvalidRequestException {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = decoded.split("\\|", -1);
+            if (parts.length == expectedParts) {
+                return parts;
+            }
+        } catch (IllegalArgumentException e) {
+            // fall through to the exception below
+        }
+        throw new InvalidRequestException("REQ-001", "Entered page cursor is invalid");
+    }
+
+    /**
+     * Decodes a cursor holding a single numeric id.
+     */
+    public static Integer decodeId(final String cursor) throws InvalidRequestException {
+        try {
+            return Integer.valueOf(decode(cursor, 1)[0]);
+        } catch (NumberFormatException e) {
+            throw new InvalidRequestException("REQ-001", "Entered page cursor is invalid");
+        }
+    }
+}
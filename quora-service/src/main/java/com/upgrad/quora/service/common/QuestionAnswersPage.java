@@ -0,0 +1,50 @@
+package com.upgrad.quora.service.common;
+
+import com.upgrad.quora.service.entity.AnswerEntity;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * QuestionAnswersPage holds the content and version of a question, fetched once, along with one page of its answers.
+ */
+public class QuestionAnswersPage {
+
+    private final String questionContent;
+
+    private final Integer questionVersion;
+
+    private final KeysetPage<AnswerEntity> answers;
+
+    public QuestionAnswersPage(final String questionContent, final Integer questionVersion,
+                               final KeysetPage<AnswerEntity> answers) {
+        this.questionContent = questionContent;
+        this.questionVersion = questionVersion;
+        this.answers = answers;
+    }
+
+    public String getQuestionContent() {
+        return questionContent;
+    }
+
+    public Integer getQuestionVersion() {
+        return questionVersion;
+    }
+
+    public KeysetPage<AnswerEntity> getAnswers() {
+        return answers;
+    }
+
+    /**
+     * @return - strong ETag of the page, quoted. It changes whenever the question is edited, an answer of the page is
+     * edited, an answer enters or leaves the page or the page stops or starts being the last one.
+     */
+    public String getEtag() {
+        StringBuilder versions = new StringBuilder().append(questionVersion);
+        for (AnswerEntity answer : answers.getItems()) {
+            versions.append(',').append(answer.getUuid()).append(':').append(answer.getVersion());
+        }
+        versions.append(',').append(answers.getNextCursor());
+        return "\"" + DigestUtils.md5DigestAsHex(versions.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+}
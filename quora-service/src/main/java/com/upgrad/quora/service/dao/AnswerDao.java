@@ -3,32 +3,61 @@
  * Below is list of all the methods and their respective functionality:
  * 1. createAnswer() method would persist the answer to the database
  * 2. getAnswer() method would fetch the details of a given answer id
- * 4. updateAnswer() method would update the given answer
- * 5. deleteAnswer() method would delete the given answer
- * 6. getAllAnswersToQuestion() method would fetch the details of all the answer per question
+ * 4. updateAnswer() method would update the content of an answer of the given owner in a single statement
+ * 5. deleteAnswer() method would delete an answer, of the given owner unless any owner is allowed, in a single statement
+ * 6. getAnswersPageByQuestion() method would fetch the question content and one page of its answers
+ * 7. getAnswersWithQuestionAndUser() method would fetch one page of all the answers along with their question and owner
+ * 8. getRecentAnswers() method would fetch one page of the answers posted in a time window, newest first
+ * 9. getAnswerIdsOfUser(), getAnswerIdsToQuestionsOfUser() and deleteAnswers() methods would delete the answers of a
+ *    deleted user and the answers to its questions in batches
  */
 
 package com.upgrad.quora.service.dao;
 
 import com.upgrad.quora.service.entity.AnswerEntity;
-import org.springframework.beans.factory.annotation.Autowired;
+import com.upgrad.quora.service.entity.UserEntity;
 import org.springframework.stereotype.Repository;
 import sun.util.locale.StringTokenIterator;
 
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
 import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import java.time.ZonedDateTime;
 import java.util.List;
 
 @Repository
 public class AnswerDao {
+
+    /* Update the content of the answer if the conditions appended in place of %s hold, and read the answer along with
+     * its question, the owner of the question and the new version in the same statement. The answer is read from the
+     * snapshot taken before the update, so it is returned even when it was not updated, which tells a missing answer
+     * from a refused update. Every column is aliased, Hibernate refuses a native query returning the same column name
+     * twice.
+     */
+    private static final String UPDATE_ANSWER = "with updated as ("
+            + "update answer set ans = :answer, version = version + 1 where uuid = :uuid %s returning id, version"
+            + ") select a.id as answer_id, a.user_id as user_id, u.version as new_version, a.date as answer_date, "
+            + "q.id as question_id, q.uuid as question_uuid, q.content as question_content, o.uuid as owner_uuid from answer a "
+            + "join question q on q.id = a.question_id join users o on o.id = q.user_id "
+            + "left join updated u on u.id = a.id where a.uuid = :uuid";
+
+    /* Delete the answer if the conditions appended in place of %s hold, and read the answer along with its question
+     * and the owner of the question in the same statement
+     */
+    private static final String DELETE_ANSWER = "with deleted as ("
+            + "delete from answer where uuid = :uuid %s returning id"
+            + ") select a.id as answer_id, a.user_id as user_id, d.id as deleted_id, a.date as answer_date, "
+            + "q.id as question_id, q.uuid as question_uuid, q.content as question_content, o.uuid as owner_uuid from answer a "
+            + "join question q on q.id = a.question_id join users o on o.id = q.user_id "
+            + "left join deleted d on d.id = a.id where a.uuid = :uuid";
+
+    private static final String OWNER_CONDITION = "and user_id = :userId ";
+
     /* Define the context for providing instance of EntityManager class */
     @PersistenceContext
     private EntityManager entityManager;
 
-    @Autowired
-    private QuestionDao questionDao;
-
     /* createAnswer() method would take the answerEntity object as input and persist it to database
      *  It would return the persisted answerEntity object back to the service layer with ID details
      */
@@ -54,40 +83,112 @@ public class AnswerDao {
         }
     }
 
-    /* updateAnswer() method would update the given answer
-     * This method would take the updated answerEntity object as input and merge it to database
-     * The merged entity object is returned to the service layer.
+    /* updateAnswer() method would update the content of the given answer in a single statement
+     * The answer is only updated if it belongs to the given owner and, unless versions is null, if its version is
+     * one of the given versions. The version is incremented along with the content, which Hibernate would otherwise do.
+     * It would return [answer id, owner id, new version, answer date, question id, question uuid, question content,
+     * question owner uuid] if the answer exists, else null is returned. The new version is null if the answer was not
+     * updated.
      */
-    public AnswerEntity updateAnswer(AnswerEntity answerToBeUpdated) {
-        /* Merge the entity object to the database */
-        entityManager.merge(answerToBeUpdated);
-        return answerToBeUpdated;
+    public Object[] updateAnswer(final String answerId, final Integer ownerId, final String content,
+                                 final List<Integer> versions) {
+        String conditions = OWNER_CONDITION + versionCondition(versions);
+        Query query = entityManager.createNativeQuery(String.format(UPDATE_ANSWER, conditions))
+                .setParameter("uuid", answerId)
+                .setParameter("answer", content)
+                .setParameter("userId", ownerId);
+        if (versions != null && !versions.isEmpty()) {
+            query.setParameter("versions", versions);
+        }
+        return singleRow(query.getResultList());
     }
 
-    /* deleteAnswer() method would delete the given answer from database
-     * This method would take the answerEntity object as input
-     * The deleted entity object is returned to the service layer if exists in database.
+    /* deleteAnswer() method would delete the given answer in a single statement
+     * The answer is only deleted if it belongs to the given owner, any owner when ownerId is null.
+     * It would return [answer id, owner id, deleted answer id, answer date, question id, question uuid,
+     * question content, question owner uuid] if the answer exists, else null is returned.
+     * The deleted answer id is null if the answer was not deleted.
      */
-    public AnswerEntity deleteAnswer(AnswerEntity answerEntity) {
-        try {
-            /* Delete the entity object from the database */
-            entityManager.remove(answerEntity);
-            return answerEntity;
-        } catch (NoResultException nre) {
-            /* Return null if answer doesn't exist */
-            return null;
+    public Object[] deleteAnswer(final String answerId, final Integer ownerId) {
+        Query query = entityManager.createNativeQuery(String.format(DELETE_ANSWER, ownerId == null ? "" : OWNER_CONDITION))
+                .setParameter("uuid", answerId);
+        if (ownerId != null) {
+            query.setParameter("userId", ownerId);
         }
+        return singleRow(query.getResultList());
+    }
+
+    /* getAnswersPageByQuestion() method would fetch the content of the given question and one page of its answers
+     * in a single round trip. The question is left joined with the answers of the page, so:
+     * - no row is returned if the question doesn't exist or belongs to a deleted user
+     * - a single row with null answer columns is returned if the question has no answers in the page
+     * The answers of deleted users are left out.
+     * Every row holds [question content, answer id, answer uuid, answer content, question version, answer version].
+     * Pagination is keyset based on the answer id, which follows the order in which answers were posted.
+     */
+    public List<Object[]> getAnswersPageByQuestion(final String questionId, final boolean newestFirst,
+                                                   final Integer afterId, final int limit) {
+        final String queryName = newestFirst ? "getNewestAnswersPageByQuestionUuid" : "getOldestAnswersPageByQuestionUuid";
+        final int after = afterId != null ? afterId : (newestFirst ? Integer.MAX_VALUE : 0);
+        return entityManager.createNamedQuery(queryName, Object[].class)
+                .setParameter("questionUuid", questionId)
+                .setParameter("afterId", after)
+                .setMaxResults(limit)
+                .getResultList();
     }
 
-    /* getAllAnswersToQuestion() method would fetch the details of all given answers to particular question
-     * It uses the NamedQuery getAllAnswersToQuestion and return details of all the given answers
-     * List of answerEntity is returned to the service layer
+    /* getAnswersWithQuestionAndUser() method would fetch one page of all the answers along with their question and
+     * owner, oldest first. It is used to walk through the whole answer table, e.g. to rebuild the search index.
+     * The page starts right after the answer with the given id, use 0 for the first page.
      */
-    public List<AnswerEntity> getAllAnswersToQuestion(String questionId) {
-        /* Get List of all answers for given question's id from the database using the given query */
-        List<AnswerEntity> answerEntities = entityManager
-                .createNamedQuery("getAllAnswersToQuestion", AnswerEntity.class)
-                .setParameter("question", questionDao.getQuestion(questionId)).getResultList();
-        return answerEntities;
+    public List<AnswerEntity> getAnswersWithQuestionAndUser(final int afterId, final int limit) {
+        return entityManager.createNamedQuery("getAnswersWithQuestionAndUserAfterId", AnswerEntity.class)
+                .setParameter("id", afterId).setMaxResults(limit).getResultList();
+    }
+
+    /* getRecentAnswers() method would fetch one page of the answers posted since the given date, newest first
+     * Every row holds [answer id, answer date, question id, question uuid, question content, question owner uuid].
+     * Pagination is keyset based on the date and the id of the last answer of the previous page. For the first page,
+     * pass the end of the window as beforeDate and Integer.MIN_VALUE as beforeId.
+     */
+    public List<Object[]> getRecentAnswers(final ZonedDateTime since, final ZonedDateTime beforeDate,
+                                           final int beforeId, final int limit) {
+        return entityManager.createNamedQuery("getRecentAnswersBefore", Object[].class)
+                .setParameter("since", since)
+                .setParameter("beforeDate", beforeDate)
+                .setParameter("beforeId", beforeId)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /* getAnswerIdsOfUser() method would fetch the ids of up to limit answers posted by the given user */
+    public List<Integer> getAnswerIdsOfUser(final UserEntity userEntity, final int limit) {
+        return entityManager.createNamedQuery("answerIdsOfUser", Integer.class)
+                .setParameter("user", userEntity).setMaxResults(limit).getResultList();
+    }
+
+    /* getAnswerIdsToQuestionsOfUser() method would fetch the ids of up to limit answers to the questions of the given user */
+    public List<Integer> getAnswerIdsToQuestionsOfUser(final UserEntity userEntity, final int limit) {
+        return entityManager.createNamedQuery("answerIdsToQuestionsOfUser", Integer.class)
+                .setParameter("user", userEntity).setMaxResults(limit).getResultList();
+    }
+
+    /* deleteAnswers() method would delete the answers with the given ids and return the number of deleted answers
+     * The answers of questions which are not deleted must be uncounted first, see QuestionDao.removeAnswers().
+     */
+    public int deleteAnswers(final List<Integer> answerIds) {
+        return entityManager.createNamedQuery("deleteAnswersByIds").setParameter("ids", answerIds).executeUpdate();
+    }
+
+    /* Condition on the version of the answer, an empty list of versions matches no version */
+    private static String versionCondition(final List<Integer> versions) {
+        if (versions == null) {
+            return "";
+        }
+        return versions.isEmpty() ? "and false " : "and version in (:versions) ";
+    }
+
+    private static Object[] singleRow(final List<?> rows) {
+        return rows.isEmpty() ? null : (Object[]) rows.get(0);
     }
 }
@@ -2,15 +2,20 @@
  * This DAO has different method to handle different interactions with Database.
  * Below is list of all the methods and their respective functionality:
  * 1. createQuestion() method would persist the question to the database
- * 2. getAllQuestions() method would fetch the details of all the questions
+ *    createQuestions() method would persist many questions to the database in JDBC batches
+ * 2. getQuestionsPage() method would fetch one page of the questions, newest first
  * 3. getQuestion() method would fetch the details of a given question
- * 4. updateQuestion() method would update the given question
- * 5. deleteQuestion() method would delete the given question
+ * 4. updateQuestion() method would update the content of a question of the given owner in a single statement
+ * 5. deleteQuestion() method would delete a question, of the given owner unless any owner is allowed, in a single statement
  * 6. getAllQuestionsByUser() method would fetch the details of all the questions per user
+ * 7. getQuestionsWithUser() method would fetch one page of all the questions along with their owners, oldest first
+ * 8. addAnswer(), removeAnswer() and removeAnswers() methods would maintain the answer count of the questions
+ * 9. getQuestionIdsOfUser() and deleteQuestions() methods would delete the questions of a deleted user in batches
  */
 
 package com.upgrad.quora.service.dao;
 
+import com.upgrad.quora.service.entity.AnswerEntity;
 import com.upgrad.quora.service.entity.QuestionEntity;
 import com.upgrad.quora.service.entity.UserEntity;
 import org.springframework.stereotype.Repository;
@@ -18,12 +23,32 @@ import org.springframework.stereotype.Repository;
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
 import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
+import java.time.ZonedDateTime;
 import java.util.List;
 
 /* @Repository method helps the container to recognize the QuestionDao as a DAO class */
 @Repository
 public class QuestionDao {
 
+    /* Update the content of the question if the conditions appended in place of %s hold, and read the question
+     * along with the new version in the same statement. The question is read from the snapshot taken before the
+     * update, so it is returned even when it was not updated, which tells a missing question from a refused update.
+     */
+    private static final String UPDATE_QUESTION = "with updated as ("
+            + "update question set content = :content, version = version + 1 where uuid = :uuid %s returning id, version"
+            + ") select q.id as question_id, q.user_id as owner_id, u.version as new_version from question q left join updated u on u.id = q.id where q.uuid = :uuid";
+
+    /* Delete the question if the conditions appended in place of %s hold, and read the question in the same statement.
+     * Every column is aliased, Hibernate refuses a native query returning the same column name twice.
+     */
+    private static final String DELETE_QUESTION = "with deleted as ("
+            + "delete from question where uuid = :uuid %s returning id"
+            + ") select q.id as question_id, q.user_id as owner_id, d.id as deleted_id from question q left join deleted d on d.id = q.id where q.uuid = :uuid";
+
+    private static final String OWNER_CONDITION = "and user_id = :userId ";
+
     /* Define the context for providing instance of EntityManager class */
     @PersistenceContext
     private EntityManager entityManager;
@@ -38,20 +63,44 @@ public class QuestionDao {
         return questionEntity;
     }
 
-    /* getAllQuestions() method would fetch the details of all the questions
-     * It uses the NamedQuery getAllQuestions and return a list of all questions
-     * The questionEntities list is returned to the service layer.
+    /* createQuestions() method would persist many questions to the database
+     * The persistence context is flushed and cleared after every batchSize questions, so that the inserts
+     * are sent as JDBC batches of that size and the persistence context does not grow with the number of questions.
+     * It would return the given questionEntity objects back to the service layer with ID details
      */
-    public List<QuestionEntity> getAllQuestions() {
-        /* Get List of all questions from the database using the given query */
-        List<QuestionEntity> questionEntities = entityManager
-                .createNamedQuery("getAllQuestions", QuestionEntity.class).getResultList();
+    public List<QuestionEntity> createQuestions(final List<QuestionEntity> questionEntities, final int batchSize) {
+        for (int i = 0; i < questionEntities.size(); i++) {
+            entityManager.persist(questionEntities.get(i));
+            if ((i + 1) % batchSize == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
         return questionEntities;
     }
 
+    /* getQuestionsPage() method would fetch one page of the questions, newest first
+     * Pagination is keyset based: the page starts right after the question with the given id,
+     * so the database seeks on the primary key instead of scanning and skipping an offset.
+     * The first page is fetched when afterId is null. The questions of deleted users are left out.
+     */
+    public List<QuestionEntity> getQuestionsPage(final Integer afterId, final int limit) {
+        TypedQuery<QuestionEntity> query;
+        if (afterId == null) {
+            query = entityManager.createNamedQuery("getLatestQuestions", QuestionEntity.class);
+        } else {
+            query = entityManager.createNamedQuery("getQuestionsBeforeId", QuestionEntity.class)
+                    .setParameter("id", afterId);
+        }
+        return query.setMaxResults(limit).getResultList();
+    }
+
     /* getQuestion() method would fetch the details of a given question
      * It uses the NamedQuery getQuestionByQuestionId and return details of the given question
      * questionEntity is returned to the service layer if the question exists else null is returned
+     * A question of a deleted user is not found.
      */
     public QuestionEntity getQuestion(final String questionId) {
         try {
@@ -65,21 +114,38 @@ public class QuestionDao {
         }
     }
 
-    /* updateQuestion() method would update the given question
-     * This method would take the updated questionEntity object as input and merge it to database
-     * The merged entity object is returned to the service layer.
+    /* updateQuestion() method would update the content of the given question in a single statement
+     * The question is only updated if it belongs to the given owner and, unless versions is null, if its version is
+     * one of the given versions. The version is incremented along with the content, which Hibernate would otherwise do.
+     * It would return [question id, owner id, new version] if the question exists, else null is returned.
+     * The new version is null if the question was not updated.
      */
-    public QuestionEntity updateQuestion(QuestionEntity questionToBeUpdated) {
-        /* Merge the entity object to the database */
-        entityManager.merge(questionToBeUpdated);
-        return questionToBeUpdated;
+    public Object[] updateQuestion(final String questionId, final Integer ownerId, final String content,
+                                   final List<Integer> versions) {
+        String conditions = OWNER_CONDITION + versionCondition(versions);
+        Query query = entityManager.createNativeQuery(String.format(UPDATE_QUESTION, conditions))
+                .setParameter("uuid", questionId)
+                .setParameter("content", content)
+                .setParameter("userId", ownerId);
+        if (versions != null && !versions.isEmpty()) {
+            query.setParameter("versions", versions);
+        }
+        return singleRow(query.getResultList());
     }
 
-    //This method deletes the question from database after validation and returns the questionEntity object.
-    public QuestionEntity deleteQuestion(QuestionEntity questionEntity) {
-        entityManager.remove(questionEntity);
-        return questionEntity;
-
+    /* deleteQuestion() method would delete the given question in a single statement
+     * The question is only deleted if it belongs to the given owner, any owner when ownerId is null.
+     * The answers of the question are deleted by the database along with it.
+     * It would return [question id, owner id, deleted question id] if the question exists, else null is returned.
+     * The deleted question id is null if the question was not deleted.
+     */
+    public Object[] deleteQuestion(final String questionId, final Integer ownerId) {
+        Query query = entityManager.createNativeQuery(String.format(DELETE_QUESTION, ownerId == null ? "" : OWNER_CONDITION))
+                .setParameter("uuid", questionId);
+        if (ownerId != null) {
+            query.setParameter("userId", ownerId);
+        }
+        return singleRow(query.getResultList());
     }
 
     //This method returns all the questions posted by a user.
@@ -92,5 +158,68 @@ public class QuestionDao {
         }
     }
 
+    /* getQuestionsWithUser() method would fetch one page of all the questions along with their owners, oldest first
+     * It is used to walk through the whole question table, e.g. to rebuild the search index.
+     * The page starts right after the question with the given id, use 0 for the first page.
+     */
+    public List<QuestionEntity> getQuestionsWithUser(final int afterId, final int limit) {
+        return entityManager.createNamedQuery("getQuestionsWithUserAfterId", QuestionEntity.class)
+                .setParameter("id", afterId).setMaxResults(limit).getResultList();
+    }
 
-}
\ No newline at end of file
+    /* addAnswer() method would count a new answer to the given question in a single update statement
+     * The count is incremented in the database rather than on the entity, so concurrent answers are all counted.
+     * The date of the latest answer only moves forward, concurrent answers may count in any order.
+     * It returns 1, or 0 if the question has been deleted, or its owner, in the meantime.
+     */
+    public int addAnswer(final QuestionEntity questionEntity, final ZonedDateTime answeredAt) {
+        return entityManager.createNamedQuery("addAnswerToQuestion")
+                .setParameter("id", questionEntity.getId())
+                .setParameter("answeredAt", answeredAt)
+                .executeUpdate();
+    }
+
+    /* removeAnswer() method would uncount the given answer from its question in a single update statement
+     * The date of the latest answer is taken from the remaining answers.
+     */
+    public void removeAnswer(final AnswerEntity answerEntity) {
+        entityManager.createNamedQuery("removeAnswerFromQuestion")
+                .setParameter("id", answerEntity.getQuestion().getId())
+                .setParameter("answerId", answerEntity.getId())
+                .executeUpdate();
+    }
+
+    /* removeAnswers() method would uncount the answers with the given ids from their questions in a single statement
+     * It must be called before the answers are deleted, see AnswerDao.deleteAnswers().
+     */
+    public void removeAnswers(final List<Integer> answerIds) {
+        entityManager.createNamedQuery("removeAnswersFromQuestions")
+                .setParameter("ids", answerIds)
+                .executeUpdate();
+    }
+
+    /* getQuestionIdsOfUser() method would fetch the ids of up to limit questions of the given user */
+    public List<Integer> getQuestionIdsOfUser(final UserEntity userEntity, final int limit) {
+        return entityManager.createNamedQuery("questionIdsOfUser", Integer.class)
+                .setParameter("user", userEntity).setMaxResults(limit).getResultList();
+    }
+
+    /* deleteQuestions() method would delete the questions with the given ids and return the number of deleted questions
+     * The database deletes the answers to the questions along with them.
+     */
+    public int deleteQuestions(final List<Integer> questionIds) {
+        return entityManager.createNamedQuery("deleteQuestionsByIds").setParameter("ids", questionIds).executeUpdate();
+    }
+
+    /* Condition on the version of the question, an empty list of versions matches no version */
+    private static String versionCondition(final List<Integer> versions) {
+        if (versions == null) {
+            return "";
+        }
+        return versions.isEmpty() ? "and false " : "and version in (:versions) ";
+    }
+
+    private static Object[] singleRow(final List<?> rows) {
+        return rows.isEmpty() ? null : (Object[]) rows.get(0);
+    }
+}
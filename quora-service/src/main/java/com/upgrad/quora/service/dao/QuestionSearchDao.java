@@ -0,0 +1,71 @@
+/* QuestionSearchDao searches the questions with the full text search of PostgreSQL.
+ * It relies on the generated tsvector columns QUESTION.content_tsv and ANSWER.ans_tsv and their GIN indexes,
+ * see migration V007__full_text_search.sql in quora-db.
+ * 1. searchQuestions() method would fetch one page of the questions matching a search query, best match first
+ */
+
+package com.upgrad.quora.service.dao;
+
+import com.upgrad.quora.service.search.SearchHit;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import java.util.ArrayList;
+import java.util.List;
+
+@Repository
+public class QuestionSearchDao {
+
+    /* Questions matching the query in their content or in one of their answers, with the score of every question being
+     * the rank of its content, weighted like in QuestionSearchIndex, plus the ranks of its matching answers.
+     * The ranks are added up as numeric, which unlike double precision gives the same sum in whatever order the rows
+     * come, so that a score is the same on every execution and the keyset condition can compare it for equality.
+     * Questions and answers of users marked as deleted are left out, they only wait for UserPurgeJob.
+     * The keyset condition of the page is appended in place of %s.
+     */
+    private static final String SEARCH_QUERY = "select q.id, q.uuid, q.content, s.score from ("
+            + "select m.question_id, cast(sum(m.score) as double precision) as score from ("
+            + "select q.id as question_id, 2 * cast(ts_rank(q.content_tsv, t.query) as numeric) as score "
+            + "from question q, to_tsquery('english', :query) as t(query) where q.content_tsv @@ t.query "
+            + "union all "
+            + "select a.question_id, cast(ts_rank(a.ans_tsv, t.query) as numeric) as score "
+            + "from answer a join users u on u.id = a.user_id, to_tsquery('english', :query) as t(query) "
+            + "where a.ans_tsv @@ t.query and u.deleted_at is null"
+            + ") m group by m.question_id"
+            + ") s join question q on q.id = s.question_id join users u on u.id = q.user_id and u.deleted_at is null %s "
+            + "order by s.score desc, q.id desc";
+
+    private static final String AFTER_CONDITION = "where s.score < :afterScore or (s.score = :afterScore and q.id < :afterId)";
+
+    /* Define the context for providing instance of EntityManager class */
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /* searchQuestions() method would fetch one page of the questions matching any of the given terms, best match first
+     * The terms must only hold letters and digits, see QuestionSearchIndex.tokenize(), they are combined into a
+     * tsquery matching any of them.
+     * Pagination is keyset based on the score and the id of the last question of the previous page,
+     * the first page is fetched when afterId is null.
+     */
+    public List<SearchHit> searchQuestions(final List<String> terms, final double afterScore, final Integer afterId,
+                                           final int limit) {
+        final Query query = entityManager.createNativeQuery(
+                String.format(SEARCH_QUERY, afterId == null ? "" : AFTER_CONDITION))
+                .setParameter("query", String.join(" | ", terms))
+                .setMaxResults(limit);
+        if (afterId != null) {
+            query.setParameter("afterScore", afterScore).setParameter("afterId", afterId);
+        }
+
+        List<?> rows = query.getResultList();
+        List<SearchHit> hits = new ArrayList<SearchHit>(rows.size());
+        for (Object row : rows) {
+            Object[] columns = (Object[]) row;
+            hits.add(new SearchHit(((Number) columns[0]).intValue(), (String) columns[1], (String) columns[2],
+                    ((Number) columns[3]).doubleValue()));
+        }
+        return hits;
+    }
+}
@@ -7,6 +7,8 @@ import org.springframework.stereotype.Repository;
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
 import javax.persistence.PersistenceContext;
+import java.time.ZonedDateTime;
+import java.util.List;
 
 @Repository
 public class UserDao {
@@ -46,6 +48,7 @@ public class UserDao {
 
 
     //This method takes in the parameter of access token and verifies from database if its a valid token.
+    //The sessions of a deleted user are not found, they are only left until UserPurgeJob deletes them.
     public UserAuthEntity verifyToken(String accessToken) {
         try {
             return entityManager.createNamedQuery("userAuthTokenByAccessToken", UserAuthEntity.class).setParameter("accessToken", accessToken).getSingleResult();
@@ -71,20 +74,54 @@ public class UserDao {
         }
     }
 
-    /* Added by Ankit as part of implementing the deleteUser functionality
-     * This method will take user entity and will delete the user from the database.
-     * This method would return the User details wrapped in the UserEntity object.
-     * If the user doesn't exist, it would return null.
+    /* This method marks the given user as deleted at the given time, see UserPurgeJob for the deletion of the row.
+     * It returns 1, or 0 if the user has been deleted in the meantime.
      */
-    public UserEntity deleteUser(UserEntity userEntity) {
-        try {
-            // Remove the user from the database
-            entityManager.remove(userEntity);
-            return userEntity;
-        } catch (NoResultException nre) {
-            // If user doesn't exist, return null to the service
-            return null;
+    public int markUserDeleted(final UserEntity userEntity, final ZonedDateTime deletedAt) {
+        return entityManager.createNamedQuery("markUserDeleted")
+                .setParameter("id", userEntity.getId())
+                .setParameter("deletedAt", deletedAt)
+                .executeUpdate();
+    }
+
+    /* This method returns up to limit users marked as deleted, those marked first first */
+    public List<UserEntity> getDeletedUsers(final int limit) {
+        return entityManager.createNamedQuery("deletedUsers", UserEntity.class).setMaxResults(limit).getResultList();
+    }
+
+    /* This method returns the ids of up to limit sessions of the given user */
+    public List<Long> getSessionIdsOfUser(final UserEntity userEntity, final int limit) {
+        return entityManager.createNamedQuery("sessionIdsOfUser", Long.class)
+                .setParameter("user", userEntity).setMaxResults(limit).getResultList();
+    }
+
+    /* This method deletes the sessions with the given ids and returns the number of deleted sessions */
+    public int deleteSessions(final List<Long> ids) {
+        return entityManager.createNamedQuery("deleteSessionsByIds").setParameter("ids", ids).executeUpdate();
+    }
+
+    /* This method deletes the row of the given user, once its answers, questions and sessions have been deleted.
+     * Any row of the user left over is deleted by the database along with it.
+     */
+    public int deleteUser(final UserEntity userEntity) {
+        return entityManager.createNamedQuery("deleteUserById").setParameter("id", userEntity.getId()).executeUpdate();
+    }
+
+    /* This method deletes up to batchSize sessions which expired before expiredBefore or were signed out before
+     * signedOutBefore and returns the number of deleted sessions.
+     * The ids are selected first, so that a single call never deletes more than batchSize rows.
+     */
+    public int deleteExpiredSessions(final ZonedDateTime expiredBefore, final ZonedDateTime signedOutBefore,
+                                     final int batchSize) {
+        List<Long> ids = entityManager.createNamedQuery("expiredSessionIds", Long.class)
+                .setParameter("expiredBefore", expiredBefore)
+                .setParameter("signedOutBefore", signedOutBefore)
+                .setMaxResults(batchSize)
+                .getResultList();
+        if (ids.isEmpty()) {
+            return 0;
         }
+        return deleteSessions(ids);
     }
 
 }
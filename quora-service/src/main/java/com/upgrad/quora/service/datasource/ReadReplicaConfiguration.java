@@ -0,0 +1,94 @@
+/* ReadReplicaConfiguration sends the read only transactions to a replica of the database when
+ * "quora.datasource.replica.url" is set, and everything else, every write and every sign in and sign out, to the
+ * primary given by "spring.datasource".
+ * Both databases get their own connection pool, the primary configured by "spring.datasource.hikari" and the replica by
+ * "quora.datasource.replica.hikari". The data source used by JPA routes each transaction to one of them.
+ * The two pools are built inside the single data source bean rather than as beans of their own: Spring Boot initializes
+ * every DataSource bean as it is created, which looks up the primary data source while it is still being created.
+ * As the pools are no beans, their metrics are bound here rather than by Spring Boot, and the data source bean closes
+ * them when the application context is closed.
+ * Without a replica url this configuration is skipped and the single data source of Spring Boot is used.
+ */
+package com.upgrad.quora.service.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.sql.SQLException;
+
+@Configuration
+@ConditionalOnProperty(prefix = "quora.datasource.replica", name = "url")
+public class ReadReplicaConfiguration {
+
+    /* Connections are taken on the first statement, once the transaction has begun and is known to be read only.
+     * The replica is reached with the credentials of the primary unless it is given its own.
+     */
+    @Bean(destroyMethod = "close")
+    @Primary
+    public DataSource dataSource(final DataSourceProperties properties, final Environment environment,
+                                 @Value("${quora.datasource.replica.url}") final String url,
+                                 @Value("${quora.datasource.replica.username:${spring.datasource.username:}}") final String username,
+                                 @Value("${quora.datasource.replica.password:${spring.datasource.password:}}") final String password) {
+        final Binder binder = Binder.get(environment);
+
+        final HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        binder.bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+
+        final HikariDataSource replica = DataSourceBuilder.create().type(HikariDataSource.class)
+                .driverClassName(properties.determineDriverClassName())
+                .url(url).username(username).password(password).build();
+        binder.bind("quora.datasource.replica.hikari", Bindable.ofInstance(replica));
+
+        return new ClosingDataSourceProxy(new ReadReplicaRoutingDataSource(primary, replica));
+    }
+
+    /* Report both pools in the hikaricp.connections gauges */
+    @Bean
+    public MeterBinder connectionPoolMetrics(final DataSource dataSource) {
+        return registry -> {
+            for (HikariDataSource pool : unwrap(dataSource).getPools()) {
+                if (pool.getMetricRegistry() == null && pool.getMetricsTrackerFactory() == null) {
+                    pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+                }
+            }
+        };
+    }
+
+    /* The LazyConnectionDataSourceProxy has nothing to close, this one closes the pools of the data source behind it */
+    static class ClosingDataSourceProxy extends LazyConnectionDataSourceProxy implements Closeable {
+
+        private final ReadReplicaRoutingDataSource routingDataSource;
+
+        ClosingDataSourceProxy(final ReadReplicaRoutingDataSource routingDataSource) {
+            super(routingDataSource);
+            this.routingDataSource = routingDataSource;
+        }
+
+        @Override
+        public void close() {
+            routingDataSource.close();
+        }
+    }
+
+    private static ReadReplicaRoutingDataSource unwrap(final DataSource dataSource) {
+        try {
+            return dataSource.unwrap(ReadReplicaRoutingDataSource.class);
+        } catch (SQLException e) {
+            throw new IllegalStateException("The data source does not route to a replica", e);
+        }
+    }
+}
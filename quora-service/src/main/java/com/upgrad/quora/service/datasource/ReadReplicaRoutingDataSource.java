@@ -0,0 +1,60 @@
+package com.upgrad.quora.service.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.Closeable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ReadReplicaRoutingDataSource hands out connections of the replica inside read only transactions and connections of
+ * the primary everywhere else.
+ * The transaction is only known to be read only once it has begun, so this data source must sit behind a
+ * LazyConnectionDataSourceProxy, which takes the connection when the first statement runs, see ReadReplicaConfiguration.
+ * Closing it closes both connection pools.
+ */
+public class ReadReplicaRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+
+    public static final String PRIMARY = "primary";
+
+    public static final String REPLICA = "replica";
+
+    private final HikariDataSource primary;
+
+    private final HikariDataSource replica;
+
+    public ReadReplicaRoutingDataSource(final HikariDataSource primary, final HikariDataSource replica) {
+        this.primary = primary;
+        this.replica = replica;
+        Map<Object, Object> targets = new HashMap<Object, Object>();
+        targets.put(PRIMARY, primary);
+        targets.put(REPLICA, replica);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    /* The connection pools of the primary and of the replica, in this order */
+    public List<HikariDataSource> getPools() {
+        return Arrays.asList(primary, replica);
+    }
+
+    /* Close the connection pools of the replica and of the primary */
+    @Override
+    public void close() {
+        try {
+            replica.close();
+        } finally {
+            primary.close();
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly() ? REPLICA : PRIMARY;
+    }
+}
@@ -1,6 +1,6 @@
 /* Created by Sangeeta as part of Creating Entities for Quora Group Case Study
  * AnswerEntity is a java class which is mapped to answer table in database
- * It has the attributes - id, uuid, answer, date mapped to the respective columns in database
+ * It has the attributes - id, uuid, answer, date, version mapped to the respective columns in database
  * This entity holds the information regarding answers posted by users per question
  * It has a many to one relationship with users and question tables
  * Delete Cascade has also been defined for answer table w.r.t users and question tables
@@ -13,6 +13,7 @@ import java.io.Serializable;
 import java.time.ZonedDateTime;
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
@@ -20,7 +21,9 @@ import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.NamedQueries;
 import javax.persistence.NamedQuery;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import javax.persistence.Version;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
 
@@ -35,15 +38,38 @@ import org.hibernate.annotations.OnDeleteAction;
 @Entity
 @Table(name = "answer")
 @NamedQueries({
-        @NamedQuery(name = "getAnswerByUuid", query = "select a from AnswerEntity a where a.uuid = :uuid"),
-        @NamedQuery(name = "getAllAnswersToQuestion", query = "select a from AnswerEntity a where a.question = :question")
+        @NamedQuery(name = "answerIdsOfUser", query = "select a.id from AnswerEntity a where a.user = :user order by a.id asc"),
+        @NamedQuery(name = "answerIdsToQuestionsOfUser", query = "select a.id from AnswerEntity a join a.question q "
+                + "where q.user = :user order by a.id asc"),
+        @NamedQuery(name = "deleteAnswersByIds", query = "delete from AnswerEntity a where a.id in :ids"),
+        @NamedQuery(name = "getAnswerByUuid", query = "select a from AnswerEntity a join fetch a.user join fetch a.question q "
+                + "join fetch q.user where a.uuid = :uuid"),
+        @NamedQuery(name = "getNewestAnswersPageByQuestionUuid", query = "select q.content, a.id, a.uuid, a.answer, q.version, a.version from QuestionEntity q "
+                + "join q.user u left join AnswerEntity a on a.question = q and a.id < :afterId "
+                + "and a.user.id not in (select du.id from UserEntity du where du.deletedAt is not null) "
+                + "where q.uuid = :questionUuid and u.deletedAt is null order by a.id desc"),
+        @NamedQuery(name = "getOldestAnswersPageByQuestionUuid", query = "select q.content, a.id, a.uuid, a.answer, q.version, a.version from QuestionEntity q "
+                + "join q.user u left join AnswerEntity a on a.question = q and a.id > :afterId "
+                + "and a.user.id not in (select du.id from UserEntity du where du.deletedAt is not null) "
+                + "where q.uuid = :questionUuid and u.deletedAt is null order by a.id asc"),
+        @NamedQuery(name = "getAnswersWithQuestionAndUserAfterId", query = "select a from AnswerEntity a join fetch a.question q "
+                + "join fetch q.user u join fetch a.user au where a.id > :id and u.deletedAt is null and au.deletedAt is null "
+                + "order by a.id asc"),
+        @NamedQuery(name = "getRecentAnswersBefore", query = "select a.id, a.date, q.id, q.uuid, q.content, u.uuid from AnswerEntity a "
+                + "join a.question q join q.user u join a.user au where u.deletedAt is null and au.deletedAt is null "
+                + "and a.date >= :since and (a.date < :beforeDate or (a.date = :beforeDate and a.id < :beforeId)) "
+                + "order by a.date desc, a.id desc")
 })
 public class AnswerEntity implements Serializable {
 
-    /* Attribute id corresponds to field ID - primary key in answer table */
+    /* Attribute id corresponds to field ID - primary key in answer table
+     * The id is taken from answer_id_seq, which is incremented by 50, so that Hibernate hands out
+     * 50 ids per sequence call and can batch the inserts.
+     */
     @Id
     @Column(name = "ID")
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "answerIdGenerator")
+    @SequenceGenerator(name = "answerIdGenerator", sequenceName = "answer_id_seq", allocationSize = 50)
     private Integer id;
 
     /* Attribute uuid corresponds to UUID field in answer table
@@ -74,25 +100,33 @@ public class AnswerEntity implements Serializable {
 
     /* Attribute user corresponds to USER_ID field in answer table
      * This field is defined as foreign key. Hence, the @ManyToOne annotation is added to this
-     * attribute.
+     * attribute. It is loaded lazily, the queries which need it fetch it with a join fetch.
      * USER_ID field is mapped as a foreign key which corresponds to primary key ID in users table.
      */
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @OnDelete(action = OnDeleteAction.CASCADE)
     @JoinColumn(name = "USER_ID")
     private UserEntity user;
 
     /* Attribute question corresponds to QUESTION_ID field in answer table
      * This field is defined as foreign key. Hence, the @ManyToOne annotation is added to this
-     * attribute.
+     * attribute. It is loaded lazily, the queries which need it fetch it with a join fetch.
      * Field QUESTION_ID is mapped as foreign key which corresponds to primary key ID in question
      * table.
      */
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @OnDelete(action = OnDeleteAction.CASCADE)
     @JoinColumn(name = "QUESTION_ID")
     private QuestionEntity question;
 
+    /* Attribute version corresponds to VERSION field in answer table
+     * It is incremented by Hibernate with every update of the row, which tells clients whether the row changed since
+     * they read it (see the ETags of the profile and answer listings).
+     */
+    @Version
+    @Column(name = "VERSION")
+    private Integer version;
+
     /* Getters & Setters for the given attributes */
     public Integer getId() {
         return id;
@@ -142,15 +176,29 @@ public class AnswerEntity implements Serializable {
         this.question = question;
     }
 
-    /* Overridden equals, hashCode, toString methods as per need */
+    public Integer getVersion() {
+        return version;
+    }
+
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
+
+    /* Overridden equals, hashCode, toString methods as per need, equal by uuid like UserEntity */
     @Override
     public boolean equals(Object obj) {
-        return new EqualsBuilder().append(this, obj).isEquals();
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof AnswerEntity)) {
+            return false;
+        }
+        return uuid != null && new EqualsBuilder().append(uuid, ((AnswerEntity) obj).getUuid()).isEquals();
     }
 
     @Override
     public int hashCode() {
-        return new HashCodeBuilder().append(this).hashCode();
+        return new HashCodeBuilder().append(uuid).toHashCode();
     }
 
     @Override
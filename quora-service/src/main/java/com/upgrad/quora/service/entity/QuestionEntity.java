@@ -1,6 +1,6 @@
 /* Created by Sangeeta as part of Creating Entities for Quora Group Case Study
  * QuestionEntity is a java class which is mapped to question table in database
- * It has the attributes - id, uuid, content, date mapped to the respective columns in database
+ * It has the attributes - id, uuid, content, date, answerCount, lastAnswerAt, version mapped to the respective columns in database
  * This entity holds the details about the questions posted
  * It has a many to one relationship with users table
  * Delete Cascade has also been defined for question table w.r.t users table
@@ -13,6 +13,7 @@ import java.io.Serializable;
 import java.time.ZonedDateTime;
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
@@ -20,7 +21,9 @@ import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.NamedQueries;
 import javax.persistence.NamedQuery;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import javax.persistence.Version;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
 
@@ -35,16 +38,38 @@ import org.hibernate.annotations.OnDeleteAction;
 @Entity
 @Table(name = "question")
 @NamedQueries({
-        @NamedQuery(name = "getAllQuestions", query = "select q from QuestionEntity q"),
-        @NamedQuery(name = "getQuestionByQuestionId", query = "select q from QuestionEntity q where q.uuid=:uuid"),
-        @NamedQuery(name = "getAllQuestionsByUser", query = "select q from QuestionEntity q where q.user=:userId")
+        @NamedQuery(name = "getLatestQuestions", query = "select q from QuestionEntity q join q.user u "
+                + "where u.deletedAt is null order by q.id desc"),
+        @NamedQuery(name = "getQuestionsBeforeId", query = "select q from QuestionEntity q join q.user u "
+                + "where q.id < :id and u.deletedAt is null order by q.id desc"),
+        @NamedQuery(name = "getQuestionByQuestionId", query = "select q from QuestionEntity q join fetch q.user u "
+                + "where q.uuid=:uuid and u.deletedAt is null"),
+        @NamedQuery(name = "getAllQuestionsByUser", query = "select q from QuestionEntity q where q.user=:userId"),
+        @NamedQuery(name = "getQuestionsWithUserAfterId", query = "select q from QuestionEntity q join fetch q.user u "
+                + "where q.id > :id and u.deletedAt is null order by q.id asc"),
+        @NamedQuery(name = "addAnswerToQuestion", query = "update QuestionEntity q set q.answerCount = q.answerCount + 1, "
+                + "q.lastAnswerAt = case when q.lastAnswerAt is null or q.lastAnswerAt < :answeredAt then :answeredAt "
+                + "else q.lastAnswerAt end where q.id = :id "
+                + "and q.user.id not in (select du.id from UserEntity du where du.deletedAt is not null)"),
+        @NamedQuery(name = "removeAnswerFromQuestion", query = "update QuestionEntity q set q.answerCount = q.answerCount - 1, "
+                + "q.lastAnswerAt = (select max(a.date) from AnswerEntity a where a.question = q and a.id <> :answerId) where q.id = :id"),
+        @NamedQuery(name = "removeAnswersFromQuestions", query = "update QuestionEntity q set "
+                + "q.answerCount = q.answerCount - (select count(a) from AnswerEntity a where a.question = q and a.id in :ids), "
+                + "q.lastAnswerAt = (select max(a.date) from AnswerEntity a where a.question = q and a.id not in :ids) "
+                + "where q.id in (select a.question.id from AnswerEntity a where a.id in :ids)"),
+        @NamedQuery(name = "questionIdsOfUser", query = "select q.id from QuestionEntity q where q.user = :user order by q.id asc"),
+        @NamedQuery(name = "deleteQuestionsByIds", query = "delete from QuestionEntity q where q.id in :ids")
 })
 public class QuestionEntity implements Serializable {
 
-    /* Attribute id corresponds to field ID - primary key in question table */
+    /* Attribute id corresponds to field ID - primary key in question table
+     * The id is taken from question_id_seq, which is incremented by 50, so that Hibernate hands out
+     * 50 ids per sequence call and can batch the inserts of many questions.
+     */
     @Id
     @Column(name = "ID")
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "questionIdGenerator")
+    @SequenceGenerator(name = "questionIdGenerator", sequenceName = "question_id_seq", allocationSize = 50)
     private Integer id;
 
     /* Attribute uuid corresponds to UUID field in question table
@@ -75,14 +100,38 @@ public class QuestionEntity implements Serializable {
 
     /* Attribute user corresponds to USER_ID field in question table
      * This field is defined as foreign key. Hence, the @ManyToOne annotation is added to this
-     * attribute.
+     * attribute. It is loaded lazily, the queries which need it fetch it with a join fetch.
      * USER_ID field is mapped as a foreign key which corresponds to primary key ID in users table.
      */
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @OnDelete(action = OnDeleteAction.CASCADE)
     @JoinColumn(name = "USER_ID")
     private UserEntity user;
 
+    /* Attribute answerCount corresponds to ANSWER_COUNT field in question table
+     * It holds the number of answers to the question and is maintained by the named update queries above whenever an
+     * answer is created or deleted. It is never written when the entity is merged, so an edit of the question can't
+     * overwrite a count changed by a concurrent answer.
+     */
+    @Column(name = "ANSWER_COUNT", updatable = false)
+    @NotNull
+    private Integer answerCount = 0;
+
+    /* Attribute lastAnswerAt corresponds to LAST_ANSWER_AT field in question table
+     * It holds the date of the latest answer to the question, null when there are no answers.
+     * It is maintained along with answerCount.
+     */
+    @Column(name = "LAST_ANSWER_AT", insertable = false, updatable = false)
+    private ZonedDateTime lastAnswerAt;
+
+    /* Attribute version corresponds to VERSION field in question table
+     * It is incremented by Hibernate with every update of the row, which tells clients whether the row changed since
+     * they read it (see the ETags of the profile and answer listings).
+     */
+    @Version
+    @Column(name = "VERSION")
+    private Integer version;
+
     /* Getters & Setters for the given attributes */
     public Integer getId() {
         return id;
@@ -124,15 +173,45 @@ public class QuestionEntity implements Serializable {
         this.user = user;
     }
 
-    /* Overridden equals, hashCode, toString methods as per need */
+    public Integer getAnswerCount() {
+        return answerCount;
+    }
+
+    public void setAnswerCount(Integer answerCount) {
+        this.answerCount = answerCount;
+    }
+
+    public ZonedDateTime getLastAnswerAt() {
+        return lastAnswerAt;
+    }
+
+    public void setLastAnswerAt(ZonedDateTime lastAnswerAt) {
+        this.lastAnswerAt = lastAnswerAt;
+    }
+
+    public Integer getVersion() {
+        return version;
+    }
+
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
+
+    /* Overridden equals, hashCode, toString methods as per need, equal by uuid like UserEntity */
     @Override
     public boolean equals(Object obj) {
-        return new EqualsBuilder().append(this, obj).isEquals();
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof QuestionEntity)) {
+            return false;
+        }
+        return uuid != null && new EqualsBuilder().append(uuid, ((QuestionEntity) obj).getUuid()).isEquals();
     }
 
     @Override
     public int hashCode() {
-        return new HashCodeBuilder().append(this).hashCode();
+        return new HashCodeBuilder().append(uuid).toHashCode();
     }
 
     @Override
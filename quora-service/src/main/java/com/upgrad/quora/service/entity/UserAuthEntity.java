@@ -14,6 +14,7 @@ import java.io.Serializable;
 import java.time.ZonedDateTime;
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
@@ -21,6 +22,7 @@ import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.NamedQueries;
 import javax.persistence.NamedQuery;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
@@ -36,14 +38,22 @@ import org.hibernate.annotations.OnDeleteAction;
 @Entity
 @Table(name = "user_auth")
 @NamedQueries({
-        @NamedQuery(name = "userAuthTokenByAccessToken", query = "select ut from UserAuthEntity ut where ut.accessToken =:accessToken")
+        @NamedQuery(name = "userAuthTokenByAccessToken", query = "select ut from UserAuthEntity ut join fetch ut.user u "
+                + "where ut.accessToken =:accessToken and u.deletedAt is null"),
+        @NamedQuery(name = "expiredSessionIds", query = "select ut.id from UserAuthEntity ut where ut.expiresAt < :expiredBefore or ut.logoutAt < :signedOutBefore"),
+        @NamedQuery(name = "deleteSessionsByIds", query = "delete from UserAuthEntity ut where ut.id in :ids"),
+        @NamedQuery(name = "sessionIdsOfUser", query = "select ut.id from UserAuthEntity ut where ut.user = :user")
 })
 public class UserAuthEntity implements Serializable {
 
-    /* Attribute id corresponds to field ID - primary key in user_auth table */
+    /* Attribute id corresponds to field ID - primary key in user_auth table
+     * The id is taken from user_auth_id_seq, which is incremented by 50, so that Hibernate hands out
+     * 50 ids per sequence call and can batch the inserts.
+     */
     @Id
     @Column(name = "ID")
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "userAuthIdGenerator")
+    @SequenceGenerator(name = "userAuthIdGenerator", sequenceName = "user_auth_id_seq", allocationSize = 50)
     private long id;
 
     /* Attribute uuid corresponds to UUID field in user_auth table
@@ -57,10 +67,10 @@ public class UserAuthEntity implements Serializable {
 
     /* Attribute user corresponds to USER_ID field in user_auth table
      * This field is defined as foreign key. Hence, the @ManyToOne annotation is added to this
-     * attribute.
+     * attribute. It is loaded lazily, the queries which need it fetch it with a join fetch.
      * USER_ID field is mapped as a foreign key which corresponds to primary key ID in users table.
      */
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @OnDelete(action = OnDeleteAction.CASCADE)
     @JoinColumn(name = "USER_ID")
     private UserEntity user;
@@ -154,15 +164,21 @@ public class UserAuthEntity implements Serializable {
         this.logoutAt = logoutAt;
     }
 
-    /* Overridden equals, hashCode, toString methods as per need */
+    /* Overridden equals, hashCode, toString methods as per need, equal by uuid like UserEntity */
     @Override
     public boolean equals(Object obj) {
-        return new EqualsBuilder().append(this, obj).isEquals();
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof UserAuthEntity)) {
+            return false;
+        }
+        return uuid != null && new EqualsBuilder().append(uuid, ((UserAuthEntity) obj).getUuid()).isEquals();
     }
 
     @Override
     public int hashCode() {
-        return new HashCodeBuilder().append(this).hashCode();
+        return new HashCodeBuilder().append(uuid).toHashCode();
     }
 
     @Override
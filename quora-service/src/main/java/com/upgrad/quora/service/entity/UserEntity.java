@@ -2,13 +2,14 @@
  * UserEntity is a java class which is mapped to users table in database
  * This entity holds the details about the users registered in Quora
  * It has the attributes - id, uuid, firstName, lastName, username, email, password, salt, country,
- * dob, aboutMe, role, contactNumber mapped to the respective columns in database
+ * dob, aboutMe, role, contactNumber, version, deletedAt mapped to the respective columns in database
  * Necessary NamedQueries are defined to carry forward the required tasks
  */
 
 package com.upgrad.quora.service.entity;
 
 import java.io.Serializable;
+import java.time.ZonedDateTime;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
@@ -16,7 +17,9 @@ import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.NamedQueries;
 import javax.persistence.NamedQuery;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import javax.persistence.Version;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
 
@@ -32,15 +35,23 @@ import org.apache.commons.lang3.builder.ToStringStyle;
 @NamedQueries({
         @NamedQuery(name = "userByUsername", query = "select  u from UserEntity u where u.username = :username"),
         @NamedQuery(name = "userByEmail", query = "select  u from UserEntity u where u.email = :email"),
-        @NamedQuery(name = "userByUuid", query = "select u from UserEntity u where u.uuid = :uuid")
+        @NamedQuery(name = "userByUuid", query = "select u from UserEntity u where u.uuid = :uuid and u.deletedAt is null"),
+        @NamedQuery(name = "deletedUsers", query = "select u from UserEntity u where u.deletedAt is not null order by u.deletedAt asc, u.id asc"),
+        @NamedQuery(name = "markUserDeleted", query = "update UserEntity u set u.deletedAt = :deletedAt, u.version = u.version + 1 "
+                + "where u.id = :id and u.deletedAt is null"),
+        @NamedQuery(name = "deleteUserById", query = "delete from UserEntity u where u.id = :id")
 })
 
 public class UserEntity implements Serializable {
 
-    /* Attribute id corresponds to field ID - primary key in users table */
+    /* Attribute id corresponds to field ID - primary key in users table
+     * The id is taken from users_id_seq, which is incremented by 50, so that Hibernate hands out
+     * 50 ids per sequence call and can batch the inserts.
+     */
     @Id
     @Column(name = "ID")
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "userIdGenerator")
+    @SequenceGenerator(name = "userIdGenerator", sequenceName = "users_id_seq", allocationSize = 50)
     private Integer id;
 
     /* Attribute uuid corresponds to UUID field in users table
@@ -143,6 +154,21 @@ public class UserEntity implements Serializable {
     @Size(max = 30)
     private String contactNumber;
 
+    /* Attribute version corresponds to VERSION field in users table
+     * It is incremented by Hibernate with every update of the row, which tells clients whether the row changed since
+     * they read it (see the ETags of the profile and answer listings).
+     */
+    @Version
+    @Column(name = "VERSION")
+    private Integer version;
+
+    /* Attribute deletedAt corresponds to DELETED_AT field in users table
+     * It is set when an admin deletes the user, the row is deleted later on by UserPurgeJob.
+     * As per DB schema, the field is defined without timezone, hence used datatype - ZonedDateTime
+     */
+    @Column(name = "DELETED_AT")
+    private ZonedDateTime deletedAt;
+
     /* Getters & Setters for the given attributes */
     public Integer getId() {
         return id;
@@ -248,15 +274,41 @@ public class UserEntity implements Serializable {
         this.contactNumber = contactNumber;
     }
 
-    /* Overridden equals, hashCode, toString methods as per need */
+    public Integer getVersion() {
+        return version;
+    }
+
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
+
+    public ZonedDateTime getDeletedAt() {
+        return deletedAt;
+    }
+
+    public void setDeletedAt(ZonedDateTime deletedAt) {
+        this.deletedAt = deletedAt;
+    }
+
+    /* Overridden equals, hashCode, toString methods as per need
+     * Two entities are equal when they have the same uuid, which is assigned before the entity is persisted
+     * and never changes. Appending the entity itself to the builders would recurse until the stack overflows.
+     * The uuid of the other entity is read through its getter, as it may be a lazy proxy whose fields are not set.
+     */
     @Override
     public boolean equals(Object obj) {
-        return new EqualsBuilder().append(this, obj).isEquals();
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof UserEntity)) {
+            return false;
+        }
+        return uuid != null && new EqualsBuilder().append(uuid, ((UserEntity) obj).getUuid()).isEquals();
     }
 
     @Override
     public int hashCode() {
-        return new HashCodeBuilder().append(this).hashCode();
+        return new HashCodeBuilder().append(uuid).toHashCode();
     }
 
     @Override
@@ -0,0 +1,100 @@
+/* HotQuestionRecomputeJob recomputes the HotQuestionRanking from the answers of the ranking window.
+ * Between two runs the ranking is only updated from the answers created and deleted through this application, the
+ * recompute picks up the changes made elsewhere, drops the answers which left the window and moves the epoch of the
+ * scores forward.
+ * Answers are read newest first in batches of a bounded size, each in its own short read only transaction, and at most
+ * max-batches-per-run batches are read per run, so that a busy window never turns into an unbounded scan. When the
+ * limit is reached, the oldest answers of the window, which weigh the least, are left out.
+ * The answers of deleted users, and those to their questions, are not read, so a batch may come back short and
+ * the answers are read until a batch comes back empty.
+ */
+package com.upgrad.quora.service.job;
+
+import com.upgrad.quora.service.dao.AnswerDao;
+import com.upgrad.quora.service.ranking.HotQuestionRanking;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+
+@Component
+public class HotQuestionRecomputeJob {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HotQuestionRecomputeJob.class);
+
+    @Autowired
+    private AnswerDao answerDao;
+
+    @Autowired
+    private HotQuestionRanking hotQuestionRanking;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${quora.hot-questions.recompute.enabled:true}")
+    private boolean enabled;
+
+    @Value("${quora.hot-questions.recompute.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${quora.hot-questions.recompute.max-batches-per-run:100}")
+    private int maxBatchesPerRun;
+
+    @Scheduled(initialDelayString = "${quora.hot-questions.recompute.initial-delay-millis:0}",
+            fixedDelayString = "${quora.hot-questions.recompute.interval-millis:600000}")
+    public void recompute() {
+        if (!enabled) {
+            return;
+        }
+        final long start = System.currentTimeMillis();
+        final TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        final HotQuestionRanking.Recompute recompute = hotQuestionRanking.beginRecompute();
+        boolean finished = false;
+        try {
+            final ZonedDateTime since = recompute.getWindowStart();
+            ZonedDateTime beforeDate = recompute.getScanStart();
+            int beforeId = Integer.MIN_VALUE;
+            long answerCount = 0;
+            List<Object[]> rows;
+            int batch = 0;
+            do {
+                final ZonedDateTime pageBeforeDate = beforeDate;
+                final int pageBeforeId = beforeId;
+                rows = readOnly.execute(status -> answerDao.getRecentAnswers(since, pageBeforeDate, pageBeforeId, batchSize));
+                for (Object[] row : rows) {
+                    recompute.addAnswer((Integer) row[2], (String) row[3], (String) row[4], (String) row[5],
+                            (ZonedDateTime) row[1]);
+                }
+                if (!rows.isEmpty()) {
+                    Object[] last = rows.get(rows.size() - 1);
+                    beforeId = (Integer) last[0];
+                    beforeDate = (ZonedDateTime) last[1];
+                    answerCount += rows.size();
+                }
+                batch++;
+            } while (!rows.isEmpty() && batch < maxBatchesPerRun);
+
+            if (!rows.isEmpty()) {
+                LOG.warn("Hot questions recompute stopped after {} answers, answers before {} are left out",
+                        answerCount, beforeDate);
+            }
+            recompute.finish();
+            finished = true;
+            LOG.debug("Recomputed the hot questions ranking from {} answers in {} ms", answerCount,
+                    System.currentTimeMillis() - start);
+        } finally {
+            if (!finished) {
+                recompute.abort();
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/* SearchIndexRebuildJob loads every question and answer from the database into the QuestionSearchIndex on startup.
+ * It runs when the application context has been refreshed, before the embedded web server accepts requests, so no
+ * search is served from a partly built index and no incremental update of the index can interleave with the rebuild.
+ * The tables are read in pages of a bounded size, each in its own short read only transaction, so that the
+ * persistence context never holds more than one page. A page may come back short, the questions and answers of
+ * deleted users being left out, so the tables are read until a page comes back empty.
+ * Nothing is loaded when the questions are searched in the database, see "quora.search.mode".
+ */
+package com.upgrad.quora.service.job;
+
+import com.upgrad.quora.service.dao.AnswerDao;
+import com.upgrad.quora.service.dao.QuestionDao;
+import com.upgrad.quora.service.entity.AnswerEntity;
+import com.upgrad.quora.service.entity.QuestionEntity;
+import com.upgrad.quora.service.search.QuestionSearchIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Component
+public class SearchIndexRebuildJob {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SearchIndexRebuildJob.class);
+
+    @Autowired
+    private QuestionDao questionDao;
+
+    @Autowired
+    private AnswerDao answerDao;
+
+    @Autowired
+    private QuestionSearchIndex questionSearchIndex;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${quora.search.rebuild-on-startup:true}")
+    private boolean enabled;
+
+    @Value("${quora.search.rebuild-page-size:1000}")
+    private int pageSize;
+
+    private final AtomicBoolean rebuilt = new AtomicBoolean();
+
+    @EventListener(ContextRefreshedEvent.class)
+    public void rebuildOnStartup() {
+        if (enabled && questionSearchIndex.isEnabled() && rebuilt.compareAndSet(false, true)) {
+            rebuild();
+        }
+    }
+
+    /* Drop the whole index and load it again from the question and answer tables */
+    public void rebuild() {
+        final long start = System.currentTimeMillis();
+        final TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        questionSearchIndex.clear();
+
+        int afterId = 0;
+        List<QuestionEntity> questions;
+        do {
+            final int after = afterId;
+            questions = readOnly.execute(status -> questionDao.getQuestionsWithUser(after, pageSize));
+            if (!questions.isEmpty()) {
+                questionSearchIndex.indexQuestions(questions);
+                afterId = questions.get(questions.size() - 1).getId();
+            }
+        } while (!questions.isEmpty());
+
+        afterId = 0;
+        long answerCount = 0;
+        List<AnswerEntity> answers;
+        do {
+            final int after = afterId;
+            answers = readOnly.execute(status -> answerDao.getAnswersWithQuestionAndUser(after, pageSize));
+            for (AnswerEntity answer : answers) {
+                questionSearchIndex.indexAnswer(answer);
+            }
+            if (!answers.isEmpty()) {
+                afterId = answers.get(answers.size() - 1).getId();
+                answerCount += answers.size();
+            }
+        } while (!answers.isEmpty());
+
+        LOG.info("Rebuilt the search index from {} questions and {} answers in {} ms", questionSearchIndex.size(),
+                answerCount, System.currentTimeMillis() - start);
+    }
+}
@@ -0,0 +1,79 @@
+/* UserAuthPurgeJob deletes the sessions from user_auth which can no longer be used, so that the table and its indexes
+ * do not grow with every sign in.
+ * A session is deleted once it has been expired or signed out for longer than the retention period, the rows are kept
+ * that long so that a recently ended session is still reported as signed out rather than as unknown.
+ * Rows are deleted in batches of a bounded size, each in its own short transaction, with a pause between batches and a
+ * limit on the number of batches per run, so that a large backlog never holds long locks or saturates the database.
+ */
+package com.upgrad.quora.service.job;
+
+import com.upgrad.quora.service.dao.UserDao;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.ZonedDateTime;
+
+@Component
+public class UserAuthPurgeJob {
+
+    private static final Logger LOG = LoggerFactory.getLogger(UserAuthPurgeJob.class);
+
+    @Autowired
+    private UserDao userDao;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${quora.auth.session-purge.enabled:true}")
+    private boolean enabled;
+
+    @Value("${quora.auth.session-purge.retention-hours:24}")
+    private long retentionHours;
+
+    @Value("${quora.auth.session-purge.batch-size:500}")
+    private int batchSize;
+
+    @Value("${quora.auth.session-purge.max-batches-per-run:100}")
+    private int maxBatchesPerRun;
+
+    @Value("${quora.auth.session-purge.pause-between-batches-millis:100}")
+    private long pauseBetweenBatchesMillis;
+
+    @Scheduled(initialDelayString = "${quora.auth.session-purge.initial-delay-millis:300000}",
+            fixedDelayString = "${quora.auth.session-purge.interval-millis:600000}")
+    public void purgeExpiredSessions() {
+        if (!enabled) {
+            return;
+        }
+        final ZonedDateTime cutoff = ZonedDateTime.now().minusHours(retentionHours);
+        long deleted = 0;
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            final Integer count = transactionTemplate.execute(status -> userDao.deleteExpiredSessions(cutoff, cutoff, batchSize));
+            deleted += count;
+            if (count < batchSize) {
+                break;
+            }
+            if (!pause()) {
+                break;
+            }
+        }
+        if (deleted > 0) {
+            LOG.info("Purged {} expired and signed out sessions from user_auth", deleted);
+        }
+    }
+
+    private boolean pause() {
+        try {
+            Thread.sleep(pauseBetweenBatchesMillis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+/* UserPurgeJob deletes the rows of the users which an admin deleted, see AdminBusinessService.deleteUser().
+ * The request only marks the user as deleted and revokes its sessions. Deleting the user row right away would delete
+ * every answer, question and session of the user through ON DELETE CASCADE in a single transaction, which for a
+ * prolific user locks rows across all the tables for as long as it takes.
+ * Instead, the answers of the user, the answers to its questions, its questions and its sessions are deleted children
+ * first, in batches of a bounded size, each in its own short transaction, with a pause between batches and a limit on
+ * the number of batches per run. The user row is deleted last, once nothing is left to cascade to. A user which is not
+ * purged within a run is picked up again by the next run. A user whose purge fails is logged and skipped for the rest
+ * of the run, so that it does not hold up the users deleted after it.
+ * Progress is logged and counted in the metric quora.users.purged.rows, tagged with the table, and failures in
+ * quora.users.purge.failures.
+ */
+package com.upgrad.quora.service.job;
+
+import com.upgrad.quora.service.cache.QuestionCache;
+import com.upgrad.quora.service.cache.QuestionPageCache;
+import com.upgrad.quora.service.dao.AnswerDao;
+import com.upgrad.quora.service.dao.QuestionDao;
+import com.upgrad.quora.service.dao.UserDao;
+import com.upgrad.quora.service.entity.UserEntity;
+import com.upgrad.quora.service.ranking.HotQuestionRanking;
+import com.upgrad.quora.service.search.QuestionSearchIndex;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+@Component
+public class UserPurgeJob {
+
+    /* Counter of the rows deleted by the job, tagged with the table */
+    public static final String PURGED_ROWS_COUNTER_NAME = "quora.users.purged.rows";
+
+    /* Counter of the purges which failed, the user is retried in the next run */
+    public static final String FAILURES_COUNTER_NAME = "quora.users.purge.failures";
+
+    private static final Logger LOG = LoggerFactory.getLogger(UserPurgeJob.class);
+
+    @Autowired
+    private UserDao userDao;
+
+    @Autowired
+    private QuestionDao questionDao;
+
+    @Autowired
+    private AnswerDao answerDao;
+
+    @Autowired
+    private QuestionCache questionCache;
+
+    @Autowired
+    private QuestionPageCache questionPageCache;
+
+    @Autowired
+    private QuestionSearchIndex questionSearchIndex;
+
+    @Autowired
+    private HotQuestionRanking hotQuestionRanking;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${quora.users.purge.enabled:true}")
+    private boolean enabled;
+
+    @Value("${quora.users.purge.batch-size:500}")
+    private int batchSize;
+
+    @Value("${quora.users.purge.max-batches-per-run:100}")
+    private int maxBatchesPerRun;
+
+    @Value("${quora.users.purge.pause-between-batches-millis:100}")
+    private long pauseBetweenBatchesMillis;
+
+    @Scheduled(initialDelayString = "${quora.users.purge.initial-delay-millis:10000}",
+            fixedDelayString = "${quora.users.purge.interval-millis:10000}")
+    public void purgeDeletedUsers() {
+        if (!enabled) {
+            return;
+        }
+        /* Every user takes at least one batch, so no more users than batches can be purged in a run */
+        final List<UserEntity> users = transactionTemplate.execute(status -> userDao.getDeletedUsers(maxBatchesPerRun));
+        int batch = 0;
+        for (UserEntity user : users) {
+            if (batch >= maxBatchesPerRun) {
+                return;
+            }
+            final long start = System.currentTimeMillis();
+            long rows = 0;
+            int count = 0;
+            boolean failed = false;
+            do {
+                batch++;
+                try {
+                    count = transactionTemplate.execute(status -> purgeBatch(user));
+                } catch (RuntimeException e) {
+                    /* A user which cannot be purged must not hold up the users deleted after it */
+                    LOG.error("Purge of deleted user {} failed after {} rows, it is retried in the next run",
+                            user.getUuid(), rows, e);
+                    Counter.builder(FAILURES_COUNTER_NAME)
+                            .description("Deleted users whose purge by UserPurgeJob failed")
+                            .register(meterRegistry)
+                            .increment();
+                    failed = true;
+                    break;
+                }
+                rows += count;
+                if (count > 0 && batch < maxBatchesPerRun && !pause()) {
+                    return;
+                }
+            } while (count > 0 && batch < maxBatchesPerRun);
+
+            if (failed) {
+                continue;
+            }
+            if (count > 0) {
+                LOG.info("Purge of deleted user {} stopped after {} rows, it goes on in the next run", user.getUuid(), rows);
+                return;
+            }
+            /* Drop whatever the recompute of the ranking or the rebuild of the index read again before the purge */
+            questionSearchIndex.removeUser(user.getUuid());
+            hotQuestionRanking.userRemoved(user.getUuid());
+            LOG.info("Purged deleted user {} and {} rows of its answers, questions and sessions in {} ms", user.getUuid(),
+                    rows, System.currentTimeMillis() - start);
+        }
+    }
+
+    /* Delete the next batch of rows of the given user, children first, and return the size of the batch.
+     * Once the user has no rows left the user row itself is deleted and 0 is returned.
+     */
+    private int purgeBatch(final UserEntity user) {
+        /* Answers posted by the user, which are uncounted from their questions first */
+        List<Integer> answerIds = answerDao.getAnswerIdsOfUser(user, batchSize);
+        if (!answerIds.isEmpty()) {
+            questionDao.removeAnswers(answerIds);
+            questionPageCache.invalidateAll();
+            count("answer", answerDao.deleteAnswers(answerIds));
+            return answerIds.size();
+        }
+
+        /* Answers of other users to the questions of the user, which would otherwise be deleted along with a question */
+        answerIds = answerDao.getAnswerIdsToQuestionsOfUser(user, batchSize);
+        if (!answerIds.isEmpty()) {
+            count("answer", answerDao.deleteAnswers(answerIds));
+            return answerIds.size();
+        }
+
+        final List<Integer> questionIds = questionDao.getQuestionIdsOfUser(user, batchSize);
+        if (!questionIds.isEmpty()) {
+            questionCache.invalidateUser(user.getUuid());
+            questionPageCache.invalidateAll();
+            count("question", questionDao.deleteQuestions(questionIds));
+            return questionIds.size();
+        }
+
+        /* Sessions opened while the user was being deleted */
+        final List<Long> sessionIds = userDao.getSessionIdsOfUser(user, batchSize);
+        if (!sessionIds.isEmpty()) {
+            count("user_auth", userDao.deleteSessions(sessionIds));
+            return sessionIds.size();
+        }
+
+        count("users", userDao.deleteUser(user));
+        return 0;
+    }
+
+    /* Count the rows deleted from the given table */
+    private void count(final String table, final int rows) {
+        Counter.builder(PURGED_ROWS_COUNTER_NAME)
+                .description("Rows of deleted users purged by UserPurgeJob")
+                .tag("table", table)
+                .register(meterRegistry)
+                .increment(rows);
+    }
+
+    private boolean pause() {
+        try {
+            Thread.sleep(pauseBetweenBatchesMillis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/* ConnectionPoolReport logs the settings in effect of the connection pools once the application has started, so that a
+ * pool left at its defaults or sized for another machine is noticed in the startup log rather than under load.
+ * Every pool is reported, the primary and, when reads go to a replica, the replica one, see ReadReplicaConfiguration.
+ * The pools themselves are reported in the hikaricp.connections gauges of the metrics endpoint.
+ */
+package com.upgrad.quora.service.metrics;
+
+import com.upgrad.quora.service.datasource.ReadReplicaRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+@Component
+public class ConnectionPoolReport {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ConnectionPoolReport.class);
+
+    @Autowired
+    private List<DataSource> dataSources;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void report() {
+        /* A routing data source holds the pools of the primary and of the replica, each pool is only reported once */
+        List<HikariDataSource> pools = new ArrayList<HikariDataSource>();
+        for (DataSource dataSource : dataSources) {
+            for (HikariDataSource pool : unwrap(dataSource)) {
+                if (pools.stream().noneMatch(reported -> reported == pool)) {
+                    pools.add(pool);
+                }
+            }
+        }
+        if (pools.isEmpty()) {
+            LOG.warn("Connection pool settings are unknown, no data source is a Hikari pool");
+        }
+        pools.forEach(ConnectionPoolReport::reportPool);
+    }
+
+    private static void reportPool(final HikariDataSource pool) {
+        LOG.info("Connection pool {}: maximum-pool-size={}, minimum-idle={}, connection-timeout={} ms, "
+                        + "idle-timeout={} ms, max-lifetime={} ms, leak-detection-threshold={} ms, available processors={}",
+                pool.getPoolName(), pool.getMaximumPoolSize(), pool.getMinimumIdle(), pool.getConnectionTimeout(),
+                pool.getIdleTimeout(), pool.getMaxLifetime(), pool.getLeakDetectionThreshold(),
+                Runtime.getRuntime().availableProcessors());
+        if (pool.getLeakDetectionThreshold() == 0) {
+            LOG.warn("Connection leak detection of pool {} is disabled, set its leak-detection-threshold", pool.getPoolName());
+        }
+    }
+
+    private static List<HikariDataSource> unwrap(final DataSource dataSource) {
+        if (dataSource instanceof HikariDataSource) {
+            return Collections.singletonList((HikariDataSource) dataSource);
+        }
+        try {
+            if (dataSource.isWrapperFor(ReadReplicaRoutingDataSource.class)) {
+                return dataSource.unwrap(ReadReplicaRoutingDataSource.class).getPools();
+            }
+            return dataSource.isWrapperFor(HikariDataSource.class)
+                    ? Collections.singletonList(dataSource.unwrap(HikariDataSource.class))
+                    : Collections.<HikariDataSource>emptyList();
+        } catch (SQLException e) {
+            return Collections.emptyList();
+        }
+    }
+}
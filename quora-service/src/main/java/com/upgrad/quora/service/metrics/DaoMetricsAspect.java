@@ -0,0 +1,59 @@
+/* DaoMetricsAspect times every public method of the DAOs in "com.upgrad.quora.service.dao".
+ * Every call is recorded in the "quora.dao" timer, tagged with the DAO class, the method and whether the call threw,
+ * so a slow query shows up as the DAO method running it rather than only as a slow endpoint.
+ * The timers are looked up once per method and outcome and kept, the registry is not consulted on every call.
+ */
+package com.upgrad.quora.service.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+@Aspect
+@Component
+public class DaoMetricsAspect {
+
+    public static final String TIMER_NAME = "quora.dao";
+
+    private final MeterRegistry meterRegistry;
+
+    private final ConcurrentMap<Method, Timer> successTimers = new ConcurrentHashMap<Method, Timer>();
+
+    private final ConcurrentMap<Method, Timer> errorTimers = new ConcurrentHashMap<Method, Timer>();
+
+    public DaoMetricsAspect(final MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Around("execution(public * com.upgrad.quora.service.dao..*(..))")
+    public Object time(final ProceedingJoinPoint joinPoint) throws Throwable {
+        final Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        final long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            Object result = joinPoint.proceed();
+            failed = false;
+            return result;
+        } finally {
+            final long elapsed = System.nanoTime() - start;
+            final ConcurrentMap<Method, Timer> timers = failed ? errorTimers : successTimers;
+            final String outcome = failed ? "error" : "success";
+            timers.computeIfAbsent(method, key -> Timer.builder(TIMER_NAME)
+                    .description("Time spent in the DAO methods")
+                    .tag("dao", key.getDeclaringClass().getSimpleName())
+                    .tag("method", key.getName())
+                    .tag("outcome", outcome)
+                    .register(meterRegistry))
+                    .record(elapsed, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.upgrad.quora.service.ranking;
+
+/**
+ * HotQuestion is a question of the hot questions ranking along with its score.
+ * The score is the sum of the weights of the recent answers to the question, every weight decaying exponentially
+ * with the age of the answer. Scores are only comparable within the same ranking.
+ */
+public class HotQuestion {
+
+    private final Integer questionId;
+
+    private final String questionUuid;
+
+    private final String content;
+
+    private final String ownerUuid;
+
+    private final double score;
+
+    public HotQuestion(final Integer questionId, final String questionUuid, final String content, final String ownerUuid,
+                       final double score) {
+        this.questionId = questionId;
+        this.questionUuid = questionUuid;
+        this.content = content;
+        this.ownerUuid = ownerUuid;
+        this.score = score;
+    }
+
+    /* Same question with a different score */
+    HotQuestion withScore(final double newScore) {
+        return new HotQuestion(questionId, questionUuid, content, ownerUuid, newScore);
+    }
+
+    /* Same question with a different content */
+    HotQuestion withContent(final String newContent) {
+        return new HotQuestion(questionId, questionUuid, newContent, ownerUuid, score);
+    }
+
+    public Integer getQuestionId() {
+        return questionId;
+    }
+
+    public String getQuestionUuid() {
+        return questionUuid;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public String getOwnerUuid() {
+        return ownerUuid;
+    }
+
+    public double getScore() {
+        return score;
+    }
+}
@@ -0,0 +1,276 @@
+/* HotQuestionRanking ranks the questions by the answers they got recently, for the GET /question/hot feed.
+ * Every answer adds a weight to the score of its question which halves every "quora.hot-questions.half-life-hours".
+ * Rather than decaying every score as time passes, the weight of an answer is taken relative to a fixed epoch,
+ * exp(decay * (answeredAt - epoch)), which keeps the order of the scores the same as with decayed scores.
+ * The questions are held in a skip list ordered by score. A change moves a question by removing it and adding it back
+ * under its new score, which a reader iterating the skip list could see half done, so after every change the best
+ * "quora.hot-questions.max-size" questions are published as an immutable list, which top() reads without any lock
+ * and without a database query. Answers created and deleted by AnswerBusinessService are applied to the ranking once
+ * their transaction commits. The ranking is recomputed periodically from the answers of the last
+ * "quora.hot-questions.window-hours" by HotQuestionRecomputeJob, which also moves the epoch forward and drops answers
+ * which left the window.
+ */
+package com.upgrad.quora.service.ranking;
+
+import com.upgrad.quora.service.common.AfterCommit;
+import com.upgrad.quora.service.entity.AnswerEntity;
+import com.upgrad.quora.service.entity.QuestionEntity;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+@Component
+public class HotQuestionRanking {
+
+    /* Best ranked question first: highest score, then newest question */
+    private static final Comparator<HotQuestion> RANKING = Comparator.comparingDouble(HotQuestion::getScore).reversed()
+            .thenComparing(Comparator.comparing(HotQuestion::getQuestionId).reversed());
+
+    /* Scores below this are left over from rounding once every answer of the question was deleted */
+    private static final double MIN_SCORE = 1e-6;
+
+    private final long windowMillis;
+
+    private final double decayPerMilli;
+
+    private final int maxSize;
+
+    /* Serializes the writers, readers never take it */
+    private final Object writeLock = new Object();
+
+    private volatile Ranking current;
+
+    /* Best ranked questions of the current ranking, best first, republished under the write lock after every change */
+    private volatile List<HotQuestion> top = Collections.emptyList();
+
+    /* Changes made while a recompute is running, replayed on the recomputed ranking, null when no recompute runs */
+    private List<RankingEvent> pending;
+
+    public HotQuestionRanking(@Value("${quora.hot-questions.window-hours:168}") final long windowHours,
+                              @Value("${quora.hot-questions.half-life-hours:24}") final double halfLifeHours,
+                              @Value("${quora.hot-questions.max-size:100}") final int maxSize) {
+        this.windowMillis = TimeUnit.HOURS.toMillis(windowHours);
+        this.decayPerMilli = Math.log(2) / (halfLifeHours * TimeUnit.HOURS.toMillis(1));
+        this.maxSize = maxSize;
+        this.current = new Ranking(System.currentTimeMillis() - windowMillis);
+    }
+
+    /**
+     * @param limit - number of questions requested, capped to "quora.hot-questions.max-size"
+     * @return - the best ranked questions, best first
+     */
+    public List<HotQuestion> top(final int limit) {
+        final List<HotQuestion> published = top;
+        return new ArrayList<HotQuestion>(published.subList(0, Math.max(0, Math.min(limit, published.size()))));
+    }
+
+    /* Number of ranked questions */
+    public int size() {
+        return current.byId.size();
+    }
+
+    /**
+     * Adds the weight of a new answer to the score of its question.
+     */
+    public void answerAdded(final AnswerEntity answer) {
+        final HotQuestion question = snapshot(answer.getQuestion());
+        final long answeredAt = answer.getDate().toInstant().toEpochMilli();
+        record((ranking, scanStart) -> {
+            if (answeredAt >= scanStart) {
+                ranking.add(question, answeredAt, 1);
+            }
+        });
+    }
+
+    /**
+     * Subtracts the weight of a deleted answer from the score of its question.
+     */
+    public void answerRemoved(final AnswerEntity answer) {
+        final HotQuestion question = snapshot(answer.getQuestion());
+        final long answeredAt = answer.getDate().toInstant().toEpochMilli();
+        record((ranking, scanStart) -> {
+            if (answeredAt >= scanStart) {
+                ranking.add(question, answeredAt, -1);
+            }
+        });
+    }
+
+    /**
+     * Updates the content shown for a ranked question.
+     */
+    public void questionEdited(final QuestionEntity question) {
+        final Integer questionId = question.getId();
+        final String content = question.getContent();
+        record((ranking, scanStart) -> ranking.update(questionId, ranked -> ranked == null ? null : ranked.withContent(content)));
+    }
+
+    /**
+     * Drops a deleted question from the ranking.
+     */
+    public void questionRemoved(final QuestionEntity question) {
+        final Integer questionId = question.getId();
+        record((ranking, scanStart) -> ranking.update(questionId, ranked -> null));
+    }
+
+    /**
+     * Drops the questions of a deleted user from the ranking. The answers of the user to the questions of other users
+     * keep counting until the next recompute.
+     */
+    public void userRemoved(final String userUuid) {
+        record((ranking, scanStart) -> {
+            for (HotQuestion ranked : ranking.byId.values()) {
+                if (userUuid.equals(ranked.getOwnerUuid())) {
+                    ranking.update(ranked.getQuestionId(), question -> null);
+                }
+            }
+        });
+    }
+
+    /**
+     * Starts a recompute of the ranking from the answers of the window. The answers posted from now on are applied to
+     * both the current ranking and the recomputed one, so the recompute must only add the answers posted before
+     * {@link Recompute#getScanStart()}. Every recompute must be either finished or aborted.
+     */
+    public Recompute beginRecompute() {
+        synchronized (writeLock) {
+            pending = new ArrayList<RankingEvent>();
+            return new Recompute(System.currentTimeMillis());
+        }
+    }
+
+    /* Apply the change to the ranking once the current transaction commits, see AfterCommit */
+    private void record(final RankingEvent event) {
+        AfterCommit.run(() -> {
+            synchronized (writeLock) {
+                event.applyTo(current, Long.MIN_VALUE);
+                publishTop();
+                if (pending != null) {
+                    pending.add(event);
+                }
+            }
+        });
+    }
+
+    /* Publish the best ranked questions of the current ranking, only called under the write lock */
+    private void publishTop() {
+        List<HotQuestion> best = new ArrayList<HotQuestion>(Math.min(maxSize, current.byId.size()));
+        Iterator<HotQuestion> iterator = current.ordered.iterator();
+        while (best.size() < maxSize && iterator.hasNext()) {
+            best.add(iterator.next());
+        }
+        top = Collections.unmodifiableList(best);
+    }
+
+    private static HotQuestion snapshot(final QuestionEntity question) {
+        final String ownerUuid = question.getUser() == null ? null : question.getUser().getUuid();
+        return new HotQuestion(question.getId(), question.getUuid(), question.getContent(), ownerUuid, 0);
+    }
+
+    /**
+     * Recompute collects the answers of the window into a new ranking which replaces the current one when finished.
+     */
+    public class Recompute {
+
+        private final long scanStart;
+
+        private final Ranking ranking;
+
+        private Recompute(final long scanStart) {
+            this.scanStart = scanStart;
+            this.ranking = new Ranking(scanStart - windowMillis);
+        }
+
+        /* Answers posted at or after this time are already counted by the ranking */
+        public ZonedDateTime getScanStart() {
+            return ZonedDateTime.ofInstant(Instant.ofEpochMilli(scanStart), ZoneId.systemDefault());
+        }
+
+        /* Answers posted before this time are out of the window */
+        public ZonedDateTime getWindowStart() {
+            return ZonedDateTime.ofInstant(Instant.ofEpochMilli(ranking.epochMillis), ZoneId.systemDefault());
+        }
+
+        /* Count an answer posted in the window */
+        public void addAnswer(final Integer questionId, final String questionUuid, final String content,
+                              final String ownerUuid, final ZonedDateTime answeredAt) {
+            ranking.add(new HotQuestion(questionId, questionUuid, content, ownerUuid, 0),
+                    answeredAt.toInstant().toEpochMilli(), 1);
+        }
+
+        /* Replay the changes made since the recompute began and replace the current ranking */
+        public void finish() {
+            synchronized (writeLock) {
+                for (RankingEvent event : pending) {
+                    event.applyTo(ranking, scanStart);
+                }
+                current = ranking;
+                publishTop();
+                pending = null;
+            }
+        }
+
+        /* Keep the current ranking */
+        public void abort() {
+            synchronized (writeLock) {
+                pending = null;
+            }
+        }
+    }
+
+    /* A change to the ranking. Changes of answers posted before scanStart are skipped, as the recompute counted them. */
+    private interface RankingEvent {
+        void applyTo(Ranking ranking, long scanStart);
+    }
+
+    /* Questions ordered by score along with the index by id, only modified under the write lock or while unpublished */
+    private final class Ranking {
+
+        private final long epochMillis;
+
+        private final ConcurrentSkipListSet<HotQuestion> ordered = new ConcurrentSkipListSet<HotQuestion>(RANKING);
+
+        private final ConcurrentHashMap<Integer, HotQuestion> byId = new ConcurrentHashMap<Integer, HotQuestion>();
+
+        private Ranking(final long epochMillis) {
+            this.epochMillis = epochMillis;
+        }
+
+        /* Add or subtract the weight of an answer, answers posted before the epoch are out of the window */
+        private void add(final HotQuestion question, final long answeredAt, final int sign) {
+            if (answeredAt < epochMillis) {
+                return;
+            }
+            final double weight = sign * Math.exp(decayPerMilli * (answeredAt - epochMillis));
+            final HotQuestion ranked = byId.get(question.getQuestionId());
+            final double score = (ranked == null ? 0 : ranked.getScore()) + weight;
+            update(question.getQuestionId(), old -> score < MIN_SCORE ? null : question.withScore(score));
+        }
+
+        /* Replace a ranked question by the result of the change, which drops the question when it returns null */
+        private void update(final Integer questionId, final UnaryOperator<HotQuestion> change) {
+            final HotQuestion ranked = byId.get(questionId);
+            final HotQuestion updated = change.apply(ranked);
+            if (ranked != null) {
+                ordered.remove(ranked);
+            }
+            if (updated == null) {
+                byId.remove(questionId);
+                return;
+            }
+            byId.put(questionId, updated);
+            ordered.add(updated);
+        }
+    }
+}
@@ -0,0 +1,363 @@
+/* QuestionSearchIndex is an in-process inverted index over the content of the questions and of their answers.
+ * Every question is one document. The terms of the question content and of all its answers are posted to that
+ * document, the question content with a higher weight, so a search returns the questions matching either.
+ * Documents are ranked by the sum of term frequency * inverse document frequency over the terms of the query.
+ * The index is rebuilt from the database on startup, see SearchIndexRebuildJob, and kept up to date by the
+ * question, answer and admin services. A change made inside a transaction is applied once the transaction commits,
+ * so a rolled back change never shows up in the search results.
+ * The index is only used when "quora.search.mode" is memory. In postgres mode the questions are searched in the
+ * database by QuestionSearchDao, and the index stays empty and ignores every change.
+ */
+package com.upgrad.quora.service.search;
+
+import com.upgrad.quora.service.common.AfterCommit;
+import com.upgrad.quora.service.entity.AnswerEntity;
+import com.upgrad.quora.service.entity.QuestionEntity;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+@Component
+public class QuestionSearchIndex {
+
+    /* Best ranked hit first: highest score, then newest question */
+    private static final Comparator<SearchHit> RANKING = Comparator.comparingDouble(SearchHit::getScore).reversed()
+            .thenComparing(Comparator.comparing(SearchHit::getQuestionId).reversed());
+
+    /* A term of the question content counts as much as this many occurrences of it in the answers */
+    private static final int QUESTION_WEIGHT = 2;
+
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+
+    private static final Set<String> STOP_WORDS = new HashSet<String>(Arrays.asList(
+            "a", "an", "and", "are", "as", "at", "be", "by", "do", "for", "from", "how", "in", "is", "it", "of",
+            "on", "or", "the", "to", "was", "what", "when", "where", "which", "who", "why", "with"));
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /* question id -> document */
+    private final Map<Integer, QuestionDocument> documents = new HashMap<Integer, QuestionDocument>();
+
+    /* term -> (question id -> weighted term frequency) */
+    private final Map<String, Map<Integer, Integer>> postings = new HashMap<String, Map<Integer, Integer>>();
+
+    private final int maxQueryTerms;
+
+    private final boolean enabled;
+
+    public QuestionSearchIndex(@Value("${quora.search.max-query-terms:10}") final int maxQueryTerms,
+                               @Value("${quora.search.mode:memory}") final String mode) {
+        this.maxQueryTerms = maxQueryTerms;
+        this.enabled = "memory".equals(mode);
+    }
+
+    /* Whether the questions are searched in this index rather than in the database */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Splits a text into lower cased terms on every character which is neither a letter nor a digit.
+     * Single characters and stop words are dropped.
+     */
+    public static List<String> tokenize(final String text) {
+        List<String> terms = new ArrayList<String>();
+        if (text == null) {
+            return terms;
+        }
+        for (String token : TOKEN_SEPARATOR.split(text.toLowerCase(Locale.ROOT))) {
+            if (token.length() > 1 && !STOP_WORDS.contains(token)) {
+                terms.add(token);
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Distinct terms of a search query, only its first terms up to "quora.search.max-query-terms" are kept.
+     */
+    public List<String> queryTerms(final String query) {
+        List<String> terms = new ArrayList<String>(new LinkedHashSet<String>(tokenize(query)));
+        return terms.subList(0, Math.min(terms.size(), maxQueryTerms));
+    }
+
+    /**
+     * Adds a question to the index or replaces the content of an indexed question. Its answers are kept.
+     */
+    public void indexQuestion(final QuestionEntity question) {
+        final QuestionDocument snapshot = QuestionDocument.of(question);
+        afterCommit(() -> write(() -> putQuestion(snapshot)));
+    }
+
+    /**
+     * Adds many questions to the index under a single lock.
+     */
+    public void indexQuestions(final List<QuestionEntity> questions) {
+        final List<QuestionDocument> snapshots = new ArrayList<QuestionDocument>(questions.size());
+        for (QuestionEntity question : questions) {
+            snapshots.add(QuestionDocument.of(question));
+        }
+        afterCommit(() -> write(() -> snapshots.forEach(this::putQuestion)));
+    }
+
+    /**
+     * Removes a question along with its answers from the index.
+     */
+    public void removeQuestion(final QuestionEntity question) {
+        final Integer questionId = question.getId();
+        afterCommit(() -> write(() -> {
+            QuestionDocument document = documents.remove(questionId);
+            if (document != null) {
+                unpost(document);
+            }
+        }));
+    }
+
+    /**
+     * Adds an answer to the document of its question or replaces the content of an indexed answer.
+     */
+    public void indexAnswer(final AnswerEntity answer) {
+        final QuestionDocument question = QuestionDocument.of(answer.getQuestion());
+        final String answerUuid = answer.getUuid();
+        final AnswerDocument snapshot = new AnswerDocument(answer.getUser().getUuid(), countTerms(answer.getAnswer(), 1));
+        afterCommit(() -> write(() -> {
+            QuestionDocument document = documents.get(question.id);
+            if (document == null) {
+                putQuestion(question);
+                document = question;
+            }
+            unpost(document);
+            document.answers.put(answerUuid, snapshot);
+            post(document);
+        }));
+    }
+
+    /**
+     * Removes an answer from the document of its question.
+     */
+    public void removeAnswer(final AnswerEntity answer) {
+        final Integer questionId = answer.getQuestion().getId();
+        final String answerUuid = answer.getUuid();
+        afterCommit(() -> write(() -> {
+            QuestionDocument document = documents.get(questionId);
+            if (document != null && document.answers.containsKey(answerUuid)) {
+                unpost(document);
+                document.answers.remove(answerUuid);
+                post(document);
+            }
+        }));
+    }
+
+    /**
+     * Removes the questions and answers posted by the given user, which the database deletes along with the user.
+     */
+    public void removeUser(final String userUuid) {
+        afterCommit(() -> write(() -> {
+            Iterator<QuestionDocument> iterator = documents.values().iterator();
+            while (iterator.hasNext()) {
+                QuestionDocument document = iterator.next();
+                if (userUuid.equals(document.userUuid)) {
+                    unpost(document);
+                    iterator.remove();
+                } else if (document.answers.values().stream().anyMatch(answer -> userUuid.equals(answer.userUuid))) {
+                    unpost(document);
+                    document.answers.values().removeIf(answer -> userUuid.equals(answer.userUuid));
+                    post(document);
+                }
+            }
+        }));
+    }
+
+    /**
+     * Drops every document, used before the index is rebuilt from the database.
+     */
+    public void clear() {
+        write(() -> {
+            documents.clear();
+            postings.clear();
+        });
+    }
+
+    /**
+     * Ranks the questions matching any term of the query and returns those ranked after the given position.
+     *
+     * @param queryTerms      - terms of the search query, see {@link #queryTerms(String)}
+     * @param afterScore      - score of the last hit of the previous page, ignored when afterQuestionId is null
+     * @param afterQuestionId - question id of the last hit of the previous page, null for the first page
+     * @param limit           - maximum number of hits returned
+     * @return - hits, best ranked first
+     */
+    public List<SearchHit> search(final List<String> queryTerms, final double afterScore, final Integer afterQuestionId,
+                                  final int limit) {
+        lock.readLock().lock();
+        try {
+            /* Accumulate the score of every document holding at least one of the terms */
+            final double documentCount = documents.size();
+            Map<Integer, Double> scores = new HashMap<Integer, Double>();
+            for (String term : queryTerms) {
+                Map<Integer, Integer> posting = postings.get(term);
+                if (posting == null) {
+                    continue;
+                }
+                final double idf = Math.log(1 + documentCount / posting.size());
+                for (Map.Entry<Integer, Integer> entry : posting.entrySet()) {
+                    scores.merge(entry.getKey(), entry.getValue() * idf, Double::sum);
+                }
+            }
+
+            /* Keep the best ranked hits after the given position in a bounded heap, worst ranked on top */
+            PriorityQueue<SearchHit> best = new PriorityQueue<SearchHit>(limit + 1, RANKING.reversed());
+            for (Map.Entry<Integer, Double> entry : scores.entrySet()) {
+                QuestionDocument document = documents.get(entry.getKey());
+                SearchHit hit = new SearchHit(document.id, document.uuid, document.content, entry.getValue());
+                if (afterQuestionId != null && !hit.isRankedAfter(afterScore, afterQuestionId)) {
+                    continue;
+                }
+                best.offer(hit);
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+            List<SearchHit> hits = new ArrayList<SearchHit>(best);
+            hits.sort(RANKING);
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /* Number of indexed questions */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void putQuestion(final QuestionDocument snapshot) {
+        QuestionDocument document = documents.get(snapshot.id);
+        if (document == null) {
+            documents.put(snapshot.id, snapshot);
+            post(snapshot);
+            return;
+        }
+        unpost(document);
+        document.content = snapshot.content;
+        document.terms = snapshot.terms;
+        post(document);
+    }
+
+    private void post(final QuestionDocument document) {
+        for (Map.Entry<String, Integer> entry : document.weightedTerms().entrySet()) {
+            postings.computeIfAbsent(entry.getKey(), term -> new HashMap<Integer, Integer>())
+                    .put(document.id, entry.getValue());
+        }
+    }
+
+    private void unpost(final QuestionDocument document) {
+        for (String term : document.weightedTerms().keySet()) {
+            Map<Integer, Integer> posting = postings.get(term);
+            if (posting != null) {
+                posting.remove(document.id);
+                if (posting.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+
+    private void write(final Runnable change) {
+        lock.writeLock().lock();
+        try {
+            change.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /* Apply the change once the current transaction commits, see AfterCommit */
+    private void afterCommit(final Runnable change) {
+        if (enabled) {
+            AfterCommit.run(change);
+        }
+    }
+
+    private static Map<String, Integer> countTerms(final String text, final int weight) {
+        Map<String, Integer> terms = new HashMap<String, Integer>();
+        for (String term : tokenize(text)) {
+            terms.merge(term, weight, Integer::sum);
+        }
+        return terms;
+    }
+
+    /* Indexed state of a question, only ever modified under the write lock */
+    private static final class QuestionDocument {
+
+        private final Integer id;
+
+        private final String uuid;
+
+        private final String userUuid;
+
+        private String content;
+
+        private Map<String, Integer> terms;
+
+        private final Map<String, AnswerDocument> answers = new HashMap<String, AnswerDocument>();
+
+        private QuestionDocument(final Integer id, final String uuid, final String userUuid, final String content) {
+            this.id = id;
+            this.uuid = uuid;
+            this.userUuid = userUuid;
+            this.content = content;
+            this.terms = countTerms(content, QUESTION_WEIGHT);
+        }
+
+        private static QuestionDocument of(final QuestionEntity question) {
+            final String userUuid = question.getUser() == null ? null : question.getUser().getUuid();
+            return new QuestionDocument(question.getId(), question.getUuid(), userUuid, question.getContent());
+        }
+
+        /* Terms of the question content and of all its answers */
+        private Map<String, Integer> weightedTerms() {
+            if (answers.isEmpty()) {
+                return terms;
+            }
+            Map<String, Integer> weighted = new HashMap<String, Integer>(terms);
+            for (AnswerDocument answer : answers.values()) {
+                answer.terms.forEach((term, count) -> weighted.merge(term, count, Integer::sum));
+            }
+            return Collections.unmodifiableMap(weighted);
+        }
+    }
+
+    private static final class AnswerDocument {
+
+        private final String userUuid;
+
+        private final Map<String, Integer> terms;
+
+        private AnswerDocument(final String userUuid, final Map<String, Integer> terms) {
+            this.userUuid = userUuid;
+            this.terms = terms;
+        }
+    }
+}
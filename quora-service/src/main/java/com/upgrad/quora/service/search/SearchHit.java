@@ -0,0 +1,45 @@
+package com.upgrad.quora.service.search;
+
+/**
+ * SearchHit is a question matching a search query, along with the relevance score it was ranked by.
+ * Hits are ordered by descending score and then by descending question id, so the newest question comes first
+ * among questions of equal relevance.
+ */
+public class SearchHit {
+
+    private final Integer questionId;
+
+    private final String questionUuid;
+
+    private final String content;
+
+    private final double score;
+
+    public SearchHit(final Integer questionId, final String questionUuid, final String content, final double score) {
+        this.questionId = questionId;
+        this.questionUuid = questionUuid;
+        this.content = content;
+        this.score = score;
+    }
+
+    /* Whether this hit is ranked after the position given by a score and a question id */
+    boolean isRankedAfter(final double afterScore, final int afterQuestionId) {
+        return score < afterScore || (score == afterScore && questionId < afterQuestionId);
+    }
+
+    public Integer getQuestionId() {
+        return questionId;
+    }
+
+    public String getQuestionUuid() {
+        return questionUuid;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public double getScore() {
+        return score;
+    }
+}